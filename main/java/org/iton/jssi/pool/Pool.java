@@ -24,18 +24,23 @@
  */
 package org.iton.jssi.pool;
 
+import java.util.Date;
 import java.util.Deque;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import org.iton.jssi.pool.event.IPoolEvent;
 import org.iton.jssi.pool.event.NodeReply;
 import org.iton.jssi.pool.network.INetworkHandler;
+import org.iton.jssi.pool.network.NetworkConfig;
 import org.iton.jssi.pool.network.NetworkHandler;
+import org.iton.jssi.pool.network.event.Ping;
+import org.iton.jssi.pool.network.event.Timeout;
 import org.libsodium.jni.SodiumException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -57,13 +62,20 @@ public class Pool {
     private long active;
     private int limit;
     private String[] preordered;
+    private NetworkConfig config;
+    private ExecutorService verification;
     private ZMQ.Socket receiver;
     
     private final ExecutorService executor = Executors.newSingleThreadExecutor();
     
     public Pool(){}
     
-    public Pool(String poolName, int poolId, long timeout, long extended, long active, int limit, String[] preordered){
+    public Pool(String poolName, int poolId, long timeout, long extended, long active, int limit, String[] preordered, NetworkConfig config){
+        this(poolName, poolId, timeout, extended, active, limit, preordered, config, ForkJoinPool.commonPool());
+    }
+    
+    public Pool(String poolName, int poolId, long timeout, long extended, long active, int limit, String[] preordered, NetworkConfig config, ExecutorService verification){
+        this.verification = verification;
         this.name = poolName;
         this.poolId = poolId;
         this.timeout = timeout;
@@ -71,12 +83,13 @@ public class Pool {
         this.active = active;
         this.limit = limit;
         this.preordered = preordered;
+        this.config = config;
     }
     
     
     public void execute(ZMQ.Socket receiver){
         this.receiver = receiver;
-        Runnable worker = new Process(receiver, name, poolId, timeout, extended, active, limit, preordered);
+        Runnable worker = new Process(receiver, name, poolId, timeout, extended, active, limit, preordered, config, verification);
         executor.execute(worker);
     }
 
@@ -85,6 +98,8 @@ public class Pool {
         private final INetworkHandler network;
         private final IPoolHandler processor;
         private final CommandHandler commander;
+        private final VerificationHandler verifier;
+        private final ZContext context = new ZContext();
 
         private final Deque<IPoolEvent> events = new LinkedList<>();
         private final AtomicBoolean terminal = new AtomicBoolean(false);
@@ -99,10 +114,13 @@ public class Pool {
          * @param active active timeout
          * @param limit Connections limit
          * @param preordered Preordered nodes
+         * @param config ZMQ tuning of node sockets
+         * @param verification executor state proofs are verified on
          */
-        public Process(ZMQ.Socket receiver, String poolName, int poolId, long timeout, long extended, long active, int limit, String[] preordered) {
-            this.network = new NetworkHandler(active, limit, preordered);
-            this.processor = new PoolHandler(network, poolName, poolId, timeout, extended);
+        public Process(ZMQ.Socket receiver, String poolName, int poolId, long timeout, long extended, long active, int limit, String[] preordered, NetworkConfig config, ExecutorService verification) {
+            this.network = new NetworkHandler(active, limit, preordered, config);
+            this.verifier = new VerificationHandler(context, verification, poolId);
+            this.processor = new PoolHandler(network, verifier, poolName, poolId, timeout, extended);
             this.commander = new CommandHandler(receiver);
         }
 
@@ -110,17 +128,25 @@ public class Pool {
         public void run() {
             while (true) {
 
-                poll();
+                poll(Math.min(network.getNextPing(), network.getNextReap()));
+                
+                long now = new Date().getTime();
+                
+                if (now >= network.getNextPing()) {
+                    network.handleEvent(new Ping());
+                }
+                
+                if (now >= network.getNextReap()) {
+                    network.handleEvent(new Timeout());
+                }
+                
                 if (loop().get()) {
                     LOG.debug("Terminated");
+                    network.close();
+                    verifier.close();
+                    context.destroy();
                     return;
                 }
-
-                try {
-                    Thread.sleep(500);
-                } catch (InterruptedException e) {
-                    throw new IllegalStateException(e);
-                }
             }
         }
 
@@ -140,21 +166,34 @@ public class Pool {
             return terminal;
         }
 
-        private void poll() {
+        /**
+         * 
+         * @param deadline time of next scheduled network activity, Long.MAX_VALUE if none
+         */
+        private void poll(long deadline) {
 
             List<ZMQ.PollItem> items = network.getPollItems();
             LOG.debug(String.format("Pool items size %s", items.size()));
-            ZMQ.Poller poller = new ZContext().createPoller(items.size());
+            ZMQ.Poller poller = context.createPoller(items.size() + 2);
 
-            for (ZMQ.PollItem item : items) {
-                poller.register(item);
-            }
+            try {
+                for (ZMQ.PollItem item : items) {
+                    poller.register(item);
+                }
 
-            poller.register(commander.getPollItem());
-            poller.poll();
+                poller.register(commander.getPollItem());
+                poller.register(verifier.getPollItem());
+                poller.poll(deadline == Long.MAX_VALUE ? -1 : Math.max(0, deadline - new Date().getTime()));
 
-            if (poller.pollin(items.size())) {
-                events.addLast(commander.fetchEvents());
+                if (poller.pollin(items.size())) {
+                    events.addLast(commander.fetchEvents());
+                }
+
+                if (poller.pollin(items.size() + 1)) {
+                    events.addAll(verifier.fetchEvents());
+                }
+            } finally {
+                poller.close();
             }
 
             List<IPoolEvent> result = network.fetchEvents(items.toArray(new ZMQ.PollItem[items.size()]));
@@ -0,0 +1,487 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 ITON Solutions.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.iton.jssi.pool;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import org.iton.jssi.ledger.merkle.Leaf;
+import org.iton.jssi.ledger.merkle.MerkleTree;
+import org.iton.jssi.pool.util.Digests;
+import static org.iton.jssi.pool.PoolConstants.INDY_CLIENT_DIRECTORY;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ *
+ * @author ITON Solutions
+ * 
+ * Pool ledger transactions kept on disk between runs.
+ * 
+ * File layout: header followed by length prefixed MessagePack transactions in ledger order
+ * magic (4) | version (4) | tree size (8) | end of last record (8) | root hash (32) | genesis hash (32)
+ * 
+ * Cache is bound to genesis file by its SHA-256, cache of other genesis is not loaded and is rewritten by next store.
+ * Records are only appended, header is rewritten after appended records are forced to disk.
+ * Records past end of last record are leftovers of interrupted write and are overwritten by next store.
+ * 
+ * Offset of every record is kept in index file next to cache, see {@link PoolLedgerStore}.
+ * Index entries are forced to disk before header, so header never counts more records than index holds.
+ * 
+ * Cache and index are never truncated, region mapped by reader stays backed by file.
+ * Cache of other genesis or ledger is written to temporary files which then replace cache and index by rename,
+ * mappings of replaced files stay valid. Where mapped file can not be replaced (Windows), rewrite fails
+ * with IOException until mapping is released and cache is left as it was.
+ * 
+ * Lock file next to cache guards cache and its index: store holds it exclusive, load shared while mapping.
+ */
+public class PoolCache {
+    
+    private static final Logger LOG = LoggerFactory.getLogger(PoolCache.class);
+    
+    public static final String SUFFIX = ".cache";
+    public static final String INDEX_SUFFIX = ".idx";
+    public static final String LOCK_SUFFIX = ".lock";
+    public static final String TEMP_SUFFIX = ".tmp";
+    
+    private static final int MAGIC = 0x4A535043; // JSPC
+    private static final int VERSION = 2;
+    private static final int ROOT_SIZE = 32;
+    public static final int HEADER_SIZE = 4 + 4 + 8 + 8 + ROOT_SIZE + ROOT_SIZE;
+    
+    public final Path path;
+    public final Path index;
+    public final Path lock;
+    public final Path genesis;
+    // SHA-256 of genesis file, read once
+    private byte[] binding;
+    
+    public PoolCache(String genesis){
+        this(Paths.get(INDY_CLIENT_DIRECTORY, genesis + SUFFIX), Paths.get(INDY_CLIENT_DIRECTORY, genesis));
+    }
+    
+    public PoolCache(Path path, Path genesis){
+        this.path = path;
+        this.index = Paths.get(path.toString() + INDEX_SUFFIX);
+        this.lock = Paths.get(path.toString() + LOCK_SUFFIX);
+        this.genesis = genesis;
+    }
+    
+    public static class Header {
+        public long size;
+        public long end;
+        public byte[] root;
+        public byte[] genesis;
+        public List<Leaf> leaves;
+        
+        public Header(long size, long end, byte[] root, byte[] genesis){
+            this.size = size;
+            this.end = end;
+            this.root = root;
+            this.genesis = genesis;
+        }
+    }
+    
+    /**
+     * @return SHA-256 of genesis file cache is bound to
+     */
+    public byte[] binding() throws IOException {
+        if(binding == null){
+            MessageDigest digest = Digests.sha256();
+            byte[] buffer = new byte[8192];
+            try(InputStream in = Files.newInputStream(genesis)){
+                for(int read = in.read(buffer); read >= 0; read = in.read(buffer)){
+                    digest.update(buffer, 0, read);
+                }
+            }
+            binding = digest.digest();
+        }
+        return binding;
+    }
+    
+    private boolean isBound(Header header) throws IOException {
+        if(!MessageDigest.isEqual(header.genesis, binding())){
+            LOG.debug(String.format("Pool cache %s belongs to other genesis than %s", path, genesis));
+            return false;
+        }
+        return true;
+    }
+    
+    /**
+     * @return header of cache file or null if file is missing or not a cache of this version
+     */
+    public Header header(FileChannel channel) throws IOException {
+        if(channel.size() < HEADER_SIZE){
+            return null;
+        }
+        
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE);
+        while(buffer.hasRemaining()){
+            if(channel.read(buffer, buffer.position()) < 0){
+                return null;
+            }
+        }
+        buffer.flip();
+        
+        if(buffer.getInt() != MAGIC || buffer.getInt() != VERSION){
+            return null;
+        }
+        long size = buffer.getLong();
+        long end = buffer.getLong();
+        byte[] root = new byte[ROOT_SIZE];
+        buffer.get(root);
+        byte[] genesis = new byte[ROOT_SIZE];
+        buffer.get(genesis);
+        
+        if(size < 0 || end < HEADER_SIZE || end > channel.size()){
+            return null;
+        }
+        return new Header(size, end, root, genesis);
+    }
+    
+    /**
+     * Map cache segment and its index read only. Caller holds shared lock of cache
+     * 
+     * @return store or null if there is no cache of this genesis or index does not cover all transactions of cache
+     */
+    private PoolLedgerStore open(FileChannel channel) throws IOException {
+        try(FileChannel entries = FileChannel.open(index, StandardOpenOption.READ)){
+            
+            Header header = header(channel);
+            if(header == null || header.end > Integer.MAX_VALUE || header.size > Integer.MAX_VALUE / PoolLedgerStore.ENTRY_SIZE || !isBound(header)){
+                return null;
+            }
+            
+            long length = header.size * PoolLedgerStore.ENTRY_SIZE;
+            if(entries.size() < length){
+                return null;
+            }
+            
+            // mappings stay valid after channels are closed
+            MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, header.end);
+            MappedByteBuffer offsets = entries.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            LongBuffer buffer = offsets.asLongBuffer();
+            
+            if(header.size > 0 && (buffer.get(0) != HEADER_SIZE || buffer.get((int) header.size - 1) >= header.end)){
+                return null;
+            }
+            return new PoolLedgerStore(segment, buffer, header.size, header.root);
+        }
+    }
+    
+    /**
+     * Rebuild pool ledger from cache of this genesis, tree is accepted only if size and root hash match header
+     * 
+     * @return pool ledger or null if there is no usable cache
+     */
+    public MerkleTree load() {
+        if(!Files.isRegularFile(path)){
+            return null;
+        }
+        
+        // leaves are copied out of mapped cache before shared lock is released
+        try(FileChannel guard = FileChannel.open(lock, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            FileLock shared = lock(guard, true);
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)){
+            
+            try {
+                PoolLedgerStore store = Files.isRegularFile(index) ? open(channel) : null;
+                if(store != null){
+                    MerkleTree tree = build(store.getLeaves(), store.size, store.root);
+                    if(tree != null){
+                        LOG.debug(String.format("Pool cache %s loaded %d transactions from index", path, store.size));
+                        return tree;
+                    }
+                }
+            } catch(IOException | RuntimeException | NoSuchAlgorithmException e){
+                LOG.warn(String.format("Pool cache index %s can not be used: %s", index, e));
+            }
+            
+            Header header = scan(channel);
+            if(header == null){
+                return null;
+            }
+            MerkleTree tree = build(header.leaves, header.size, header.root);
+            if(tree != null){
+                LOG.debug(String.format("Pool cache %s loaded %d transactions", path, header.size));
+            }
+            return tree;
+        } catch(IOException | RuntimeException | NoSuchAlgorithmException e){
+            LOG.warn(String.format("Pool cache %s can not be loaded: %s", path, e));
+            return null;
+        }
+    }
+    
+    private MerkleTree build(List<Leaf> leaves, long size, byte[] root) throws NoSuchAlgorithmException {
+        MerkleTree tree = new MerkleTree(leaves).build();
+        if(tree.getCount() != size || !MessageDigest.isEqual(tree.getHash(), root)){
+            LOG.warn(String.format("Pool cache %s root hash mismatch", path));
+            return null;
+        }
+        return tree;
+    }
+    
+    /**
+     * Read cache record by record, used when index is missing. Caller holds shared lock of cache
+     */
+    private Header scan(FileChannel channel) throws IOException {
+        Header header = header(channel);
+        if(header == null || header.end > Integer.MAX_VALUE){
+            LOG.warn(String.format("Pool cache %s has unknown format", path));
+            return null;
+        }
+        if(!isBound(header)){
+            return null;
+        }
+        
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, header.end);
+        buffer.position(HEADER_SIZE);
+        
+        List<Leaf> leaves = new ArrayList<>((int) Math.min(header.size, Integer.MAX_VALUE));
+        while(buffer.hasRemaining()){
+            int length = buffer.getInt();
+            if(length < 0 || length > buffer.remaining()){
+                LOG.warn(String.format("Pool cache %s has truncated record %d", path, leaves.size() + 1));
+                return null;
+            }
+            byte[] data = new byte[length];
+            buffer.get(data);
+            leaves.add(new Leaf(data));
+        }
+        
+        if(leaves.size() != header.size){
+            LOG.warn(String.format("Pool cache %s holds %d transactions, header %d", path, leaves.size(), header.size));
+            return null;
+        }
+        header.leaves = leaves;
+        return header;
+    }
+    
+    /**
+     * Append transactions of pool ledger not yet in cache and commit new size and root hash.
+     * Cache is rewritten when it belongs to other genesis or its records are not a prefix of given ledger.
+     */
+    public void store(MerkleTree tree) throws IOException {
+        
+        List<Leaf> leaves = tree.getLeaves();
+        byte[] root = tree.getHash();
+        if(root == null || root.length != ROOT_SIZE){
+            throw new IOException("Pool ledger has no root hash");
+        }
+        
+        try(FileChannel guard = FileChannel.open(lock, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            FileLock exclusive = lock(guard, false)){
+            
+            if(Files.isRegularFile(path)){
+                try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                    FileChannel entries = FileChannel.open(index, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)){
+                    
+                    Header header = header(channel);
+                    if(header != null && isBound(header) && header.size <= leaves.size() && isPrefix(channel, header, leaves)){
+                        reindex(channel, entries, header);
+                        append(channel, entries, header, leaves, root);
+                        return;
+                    }
+                }
+            }
+            rewrite(leaves, root);
+        }
+    }
+    
+    /**
+     * Write whole ledger to temporary cache and index, then replace cache and index by them
+     */
+    private void rewrite(List<Leaf> leaves, byte[] root) throws IOException {
+        Path temp = Paths.get(path.toString() + TEMP_SUFFIX);
+        Path tempIndex = Paths.get(index.toString() + TEMP_SUFFIX);
+        
+        // temporary files are never mapped, leftovers of interrupted rewrite are dropped
+        try(FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            FileChannel entries = FileChannel.open(tempIndex, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)){
+            append(channel, entries, new Header(0, HEADER_SIZE, root, binding()), leaves, root);
+        }
+        
+        // index first, cache with index of other records is detected by reindex of next store and by load
+        Files.move(tempIndex, index, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        LOG.debug(String.format("Pool cache %s rewritten", path));
+    }
+    
+    /**
+     * Write records and index entries of transactions past header, then commit header.
+     * Leftovers of interrupted store past end of last record are overwritten.
+     */
+    private void append(FileChannel channel, FileChannel entries, Header header, List<Leaf> leaves, byte[] root) throws IOException {
+        
+        if(header.size == leaves.size() && MessageDigest.isEqual(header.root, root)){
+            return;
+        }
+        
+        long position = header.end;
+        ByteBuffer entry = ByteBuffer.allocate(PoolLedgerStore.ENTRY_SIZE);
+        for(int i = (int) header.size; i < leaves.size(); i++){
+            entry.clear();
+            entry.putLong(position);
+            entry.flip();
+            write(entries, entry, (long) i * PoolLedgerStore.ENTRY_SIZE);
+            
+            byte[] data = leaves.get(i).data;
+            ByteBuffer record = ByteBuffer.allocate(4 + data.length);
+            record.putInt(data.length);
+            record.put(data);
+            record.flip();
+            position += write(channel, record, position);
+        }
+        channel.force(false);
+        entries.force(false);
+        
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putLong(leaves.size());
+        buffer.putLong(position);
+        buffer.put(root);
+        buffer.put(binding());
+        buffer.flip();
+        write(channel, buffer, 0);
+        channel.force(true);
+        
+        LOG.debug(String.format("Pool cache %s stored %d transactions", path, leaves.size() - header.size));
+    }
+    
+    /**
+     * @return true if records counted by header are the first transactions of ledger
+     */
+    private boolean isPrefix(FileChannel channel, Header header, List<Leaf> leaves) throws IOException {
+        if(header.end > Integer.MAX_VALUE){
+            return false;
+        }
+        
+        // read to heap, cache is not mapped by store
+        ByteBuffer buffer = ByteBuffer.allocate((int) (header.end - HEADER_SIZE));
+        while(buffer.hasRemaining()){
+            if(channel.read(buffer, HEADER_SIZE + buffer.position()) < 0){
+                return false;
+            }
+        }
+        buffer.flip();
+        
+        for(int i = 0; i < header.size; i++){
+            byte[] data = leaves.get(i).data;
+            if(buffer.remaining() < 4 || buffer.getInt() != data.length || buffer.remaining() < data.length){
+                LOG.warn(String.format("Pool cache %s differs from pool ledger at transaction %d", path, i + 1));
+                return false;
+            }
+            ByteBuffer record = buffer.slice();
+            record.limit(data.length);
+            if(!record.equals(ByteBuffer.wrap(data))){
+                LOG.warn(String.format("Pool cache %s differs from pool ledger at transaction %d", path, i + 1));
+                return false;
+            }
+            buffer.position(buffer.position() + data.length);
+        }
+        return !buffer.hasRemaining();
+    }
+    
+    /**
+     * Check index entries of records counted by header against record offsets, rewrite entries which differ.
+     * Index may be missing, shorter than cache or left from other cache by interrupted rewrite.
+     */
+    private void reindex(FileChannel channel, FileChannel entries, Header header) throws IOException {
+        
+        ByteBuffer current = ByteBuffer.allocate((int) Math.min(entries.size(), header.size * PoolLedgerStore.ENTRY_SIZE));
+        while(current.hasRemaining()){
+            if(entries.read(current, current.position()) < 0){
+                break;
+            }
+        }
+        current.flip();
+        
+        ByteBuffer length = ByteBuffer.allocate(4);
+        ByteBuffer entry = ByteBuffer.allocate(PoolLedgerStore.ENTRY_SIZE);
+        long position = HEADER_SIZE;
+        int rewritten = 0;
+        for(long i = 0; i < header.size; i++){
+            length.clear();
+            while(length.hasRemaining()){
+                if(channel.read(length, position + length.position()) < 0){
+                    throw new IOException(String.format("Pool cache %s has truncated record %d", path, i + 1));
+                }
+            }
+            length.flip();
+            
+            if(current.remaining() < PoolLedgerStore.ENTRY_SIZE || current.getLong() != position){
+                entry.clear();
+                entry.putLong(position);
+                entry.flip();
+                write(entries, entry, i * PoolLedgerStore.ENTRY_SIZE);
+                rewritten++;
+            }
+            
+            position += 4 + length.getInt();
+        }
+        
+        if(position != header.end){
+            throw new IOException(String.format("Pool cache %s records end at %d, header %d", path, position, header.end));
+        }
+        if(rewritten > 0){
+            entries.force(false);
+            LOG.debug(String.format("Pool cache index %s rewrote %d entries", index, rewritten));
+        }
+    }
+    
+    /**
+     * Lock whole lock file of cache, waits for lock held by other process
+     */
+    private FileLock lock(FileChannel channel, boolean shared) throws IOException {
+        try {
+            return channel.lock(0, Long.MAX_VALUE, shared);
+        } catch (OverlappingFileLockException e) {
+            // lock is held by other channel of this process
+            throw new IOException(String.format("Pool cache %s is in use", path), e);
+        }
+    }
+    
+    private static int write(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int written = 0;
+        while(buffer.hasRemaining()){
+            written += channel.write(buffer, position + written);
+        }
+        return written;
+    }
+}
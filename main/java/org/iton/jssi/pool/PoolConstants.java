@@ -34,6 +34,11 @@ public class PoolConstants {
     public static long POOL_ACK_TIMEOUT     = 20 * 1000; // in msc
     public static long POOL_REPLY_TIMEOUT   = 60 * 1000; // in msc
     public static int  MAX_REQ_PER_POOL_CON = 5;
+    public static long POOL_PING_JITTER     = 5 * 1000;  // in msc
+    public static long POOL_FRESHNESS_THRESHOLD = 600; // in sec
+    
+    public static final String PING = "pi";
+    public static final String PONG = "po";
     
     public static final String[] PREORDERED = new String[0];
     
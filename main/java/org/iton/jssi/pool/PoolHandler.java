@@ -24,24 +24,30 @@
 package org.iton.jssi.pool;
 
 import java.io.IOException;
+import java.security.MessageDigest;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import org.bitcoinj.core.Base58;
 import org.iton.jssi.ursa.bls.VerKey;
 import org.iton.jssi.ursa.pair.CryptoException;
+import org.iton.jssi.ledger.merkle.Leaf;
 import org.iton.jssi.ledger.merkle.MerkleTree;
 import org.iton.jssi.pool.event.IPoolEvent;
 import org.iton.jssi.pool.network.RemoteNode;
 import org.iton.jssi.pool.model.NodeTransaction;
 import org.iton.jssi.pool.model.TxnData;
 import org.iton.jssi.pool.network.event.NodesStateUpdated;
+import org.iton.jssi.pool.proof.ParticipantKeys;
 import org.iton.jssi.pool.request.event.LedgerStatus;
 import org.iton.jssi.pool.request.IRequestHandler;
 import org.iton.jssi.pool.request.RequestHandler;
 import org.iton.jssi.pool.state.Initialization;
 import org.iton.jssi.pool.state.IPoolState;
+import org.iton.jssi.pool.util.Digests;
 import org.libsodium.api.Crypto_sign_ed25519;
 import org.libsodium.jni.SodiumException;
 import org.slf4j.Logger;
@@ -68,9 +74,15 @@ public class PoolHandler implements IPoolHandler {
     
     public RemoteNode[] remotes = new RemoteNode[0];
     public Map<String, NodeTransaction> nodes = new HashMap<>();
+    // number of pool ledger leaves already folded into nodes
+    private int folded;
+    // SHA-256 over leaves folded into nodes, tells an extension of that ledger from a replaced one
+    private byte[] prefix;
     public Map<String, VerKey> verkeys = new HashMap<>();
+    public ParticipantKeys keys = new ParticipantKeys();
     
     public INetworkHandler network;
+    public VerificationHandler verifier;
     public IPoolHandler pool;
     public IRequestHandler request;
     public IPoolState state;
@@ -83,6 +95,11 @@ public class PoolHandler implements IPoolHandler {
     public PoolHandler(){}
     
     public PoolHandler(INetworkHandler network, String name, int id, long timeout, long extended){
+        this(network, null, name, id, timeout, extended);
+    }
+    
+    public PoolHandler(INetworkHandler network, VerificationHandler verifier, String name, int id, long timeout, long extended){
+        this.verifier = verifier;
         this.name = name;
         this.id = id;
         this.timeout = timeout;
@@ -117,15 +134,32 @@ public class PoolHandler implements IPoolHandler {
         verkeys = getVerkeys(tree);
 
         network.handleEvent(new NodesStateUpdated(remotes));
-        IRequestHandler handler = new RequestHandler(network, threshold(nodes.size()), new int[0], verkeys, poolName, timeout, extended);
+        IRequestHandler handler = new RequestHandler(network, threshold(nodes.size()), new int[0], verkeys, keys, verifier, poolName, timeout, extended);
         LedgerStatus event = new LedgerStatus(null, tree);
         handler.handleEvent(event);
         return handler;
     }
+    
+    /**
+     * Handler of single client request sent to pool in ACTIVE state
+     */
+    public IRequestHandler createRequestHandler(int cmdId) throws CryptoException {
+        return new RequestHandler(network, threshold(nodes.size()), new int[]{cmdId}, verkeys, keys, verifier, name, timeout, extended);
+    }
             
     public Map<String, VerKey> getVerkeys(MerkleTree tree) throws IOException, CryptoException, SodiumException{
         
-        nodes = PoolTreeFactory.buildNodeState(tree);
+        List<Leaf> leaves = tree.getLeaves();
+        if(folded > 0 && (leaves.size() < folded || !Arrays.equals(prefix, digest(leaves, folded)))){
+            // not an extension of ledger folded so far
+            LOG.debug(String.format("Pool ledger of %d transactions replaced, rebuild node state", folded));
+            nodes = new HashMap<>();
+            folded = 0;
+        }
+        folded = PoolTreeFactory.buildNodeState(tree, folded, nodes);
+        prefix = digest(leaves, folded);
+        
+        verkeys = new HashMap<>();
         remotes = new RemoteNode[nodes.size()];
         
         NodeTransaction[] values = nodes.values().toArray(new NodeTransaction[remotes.length]);
@@ -142,6 +176,20 @@ public class PoolHandler implements IPoolHandler {
             byte[] bytes = Base58.decode(data.getData().getBlskey());
             verkeys.put(alias, new VerKey().build(bytes));
         }
+        keys.reset(verkeys);
         return verkeys;
     }
+    
+    /**
+     * SHA-256 over length prefixed data of first count leaves
+     */
+    private static byte[] digest(List<Leaf> leaves, int count){
+        MessageDigest digest = Digests.sha256();
+        for(int i = 0; i < count; i++){
+            byte[] data = leaves.get(i).data;
+            digest.update(new byte[]{(byte) (data.length >>> 24), (byte) (data.length >>> 16), (byte) (data.length >>> 8), (byte) data.length});
+            digest.update(data);
+        }
+        return digest.digest();
+    }
 }
@@ -0,0 +1,92 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 ITON Solutions.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.iton.jssi.pool;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import org.iton.jssi.ledger.merkle.Leaf;
+
+/**
+ *
+ * @author ITON Solutions
+ * 
+ * Read only view of pool ledger over memory mapped cache segment and its offset index.
+ * Index holds one 8 byte offset of record per transaction, entry of seqNo n is at (n - 1) * 8,
+ * so transaction is found without scanning the segment. Mappings are shared through OS page cache
+ * with other processes opening the same pool.
+ * Store is created by {@link PoolCache#load()} only, cache files are never truncated so mapping stays readable.
+ */
+public class PoolLedgerStore {
+    
+    public static final int ENTRY_SIZE = 8;
+    
+    private final ByteBuffer segment;
+    private final LongBuffer index;
+    public final long size;
+    public final byte[] root;
+    
+    public PoolLedgerStore(ByteBuffer segment, LongBuffer index, long size, byte[] root){
+        this.segment = segment;
+        this.index = index;
+        this.size = size;
+        this.root = root;
+    }
+    
+    /**
+     * @param seqNo one based sequence number of transaction
+     * @return serialized transaction
+     */
+    public byte[] get(long seqNo){
+        if(seqNo < 1 || seqNo > size){
+            throw new IndexOutOfBoundsException(String.format("Transaction %d not in ledger of size %d", seqNo, size));
+        }
+        
+        long offset = index.get((int) (seqNo - 1));
+        if(offset < PoolCache.HEADER_SIZE || offset > segment.limit() - 4){
+            throw new IllegalStateException(String.format("Transaction %d has invalid offset %d", seqNo, offset));
+        }
+        
+        int length = segment.getInt((int) offset);
+        if(length < 0 || length > segment.limit() - offset - 4){
+            throw new IllegalStateException(String.format("Transaction %d has invalid length %d", seqNo, length));
+        }
+        
+        // own cursor, store is shared between threads
+        ByteBuffer buffer = segment.duplicate();
+        buffer.position((int) offset + 4);
+        byte[] data = new byte[length];
+        buffer.get(data);
+        return data;
+    }
+    
+    public List<Leaf> getLeaves(){
+        List<Leaf> leaves = new ArrayList<>((int) size);
+        for(long seqNo = 1; seqNo <= size; seqNo++){
+            leaves.add(new Leaf(get(seqNo)));
+        }
+        return leaves;
+    }
+}
@@ -29,6 +29,7 @@ import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.iton.jssi.ledger.merkle.MerkleTree;
 import org.iton.jssi.pool.event.IPoolEvent.Event;
+import org.iton.jssi.pool.network.NetworkConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.zeromq.SocketType;
@@ -44,6 +45,8 @@ import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  *
@@ -93,6 +96,27 @@ public class PoolService {
      * @return result
      */
     public int open(String name){
+        return open(name, new NetworkConfig());
+    }
+    
+    /**
+     *
+     * @param name pool name
+     * @param config ZMQ tuning applied to every node socket of the pool
+     * @return result
+     */
+    public int open(String name, NetworkConfig config){
+        return open(name, config, ForkJoinPool.commonPool());
+    }
+    
+    /**
+     *
+     * @param name pool name
+     * @param config ZMQ tuning applied to every node socket of the pool
+     * @param verification executor state proofs of replies are verified on, owned by caller
+     * @return result
+     */
+    public int open(String name, NetworkConfig config, ExecutorService verification){
 
         for(ZMQPool holder : opened.values()) {
             if(holder.pool.getName().equals(name)) {
@@ -118,7 +142,9 @@ public class PoolService {
                 PoolConstants.POOL_REPLY_TIMEOUT,
                 PoolConstants.POOL_CON_ACTIVE_TO,
                 PoolConstants.MAX_REQ_PER_POOL_CON,
-                PoolConstants.PREORDERED);
+                PoolConstants.PREORDERED,
+                config,
+                verification);
         
         pool.execute(receiver);
         
@@ -24,21 +24,34 @@
  */
 package org.iton.jssi.pool;
 
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.security.NoSuchAlgorithmException;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.iton.jssi.ledger.merkle.Leaf;
 import org.iton.jssi.ledger.merkle.MerkleTree;
 import static org.iton.jssi.pool.PoolConstants.INDY_CLIENT_DIRECTORY;
+import org.iton.jssi.pool.model.NodeData;
 import org.iton.jssi.pool.model.NodeTransaction;
+import org.iton.jssi.pool.model.NodeUpdate;
+import org.iton.jssi.pool.model.Txn;
+import org.iton.jssi.pool.model.TxnData;
 import org.msgpack.jackson.dataformat.MessagePackFactory;
 
 /**
@@ -47,39 +60,109 @@ import org.msgpack.jackson.dataformat.MessagePackFactory;
  */
 public class PoolTreeFactory {
     
+    // factories are thread safe and shared by all conversions
+    private static final JsonFactory JSON = new JsonFactory();
+    private static final MessagePackFactory MSGPACK = new MessagePackFactory();
+    private static final ObjectReader NODE_READER = new ObjectMapper(MSGPACK).readerFor(NodeUpdate.class);
+    
     public static MerkleTree create(String genesis) throws IOException{
+        // pool ledger of previous run, catchup continues from there
+        MerkleTree tree = new PoolCache(genesis).load();
+        if(tree != null){
+            return tree;
+        }
         return fromGenesis(genesis);
     }
     
     public static Map<String, NodeTransaction> buildNodeState(MerkleTree merkle) throws IOException{
         
         Map<String, NodeTransaction> nodes = new HashMap<>();
+        buildNodeState(merkle, 0, nodes);
+        return nodes;
+    }
+    
+    /**
+     * Fold NODE transactions of leaves from given position onwards into node state, in ledger order
+     * 
+     * @return number of leaves folded so far, position to continue from once ledger grows
+     */
+    public static int buildNodeState(MerkleTree merkle, int from, Map<String, NodeTransaction> nodes) throws IOException{
+        
         List<Leaf> leaves = merkle.getLeaves();
-        ObjectMapper mapper = new ObjectMapper(new MessagePackFactory());
-        for(Leaf leaf : leaves){
-            TypeReference<NodeTransaction> type = new TypeReference<NodeTransaction>(){};
-            NodeTransaction result = mapper.readValue(leaf.data, type);
-            nodes.put(result.getTxn().getData().getDest(), result);
+        for(int i = from; i < leaves.size(); i++){
+            NodeUpdate update = NODE_READER.readValue(leaves.get(i).data);
+            if(!update.isNode()){
+                continue;
+            }
+            
+            String dest = update.txn.data.dest;
+            NodeTransaction node = nodes.get(dest);
+            if(node == null){
+                node = newNode(dest);
+                nodes.put(dest, node);
+            }
+            update.fold(node);
         }
         
-        return nodes;
+        return leaves.size();
+    }
+    
+    private static NodeTransaction newNode(String dest){
+        TxnData data = new TxnData();
+        data.setDest(dest);
+        data.setData(new NodeData());
+        
+        Txn txn = new Txn();
+        txn.setType(NodeUpdate.NODE);
+        txn.setData(data);
+        
+        NodeTransaction node = new NodeTransaction();
+        node.setTxn(txn);
+        return node;
     }
     
+    /**
+     * Convert genesis transaction from JSON to MessagePack token by token, key order is kept as in genesis
+     */
     public static byte[] fromJson(String json) throws IOException{
         
-        TypeReference<Map<String, Object>> type = new TypeReference<Map<String, Object>>(){};
-        ObjectMapper mapper = new ObjectMapper(new MessagePackFactory());
-        Map<String, Object> map = mapper.readValue(json, type);
-        return mapper.writeValueAsBytes(map);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length());
+        try(JsonParser parser = JSON.createParser(json);
+            JsonGenerator generator = MSGPACK.createGenerator(out)){
+            if(parser.nextToken() == null){
+                throw new IOException("Empty transaction");
+            }
+            generator.copyCurrentStructure(parser);
+        }
+        return out.toByteArray();
     }
     
     private static MerkleTree fromGenesis(String genesis) throws IOException{
-        List<Leaf> leaves = new ArrayList<>();
+        List<Leaf> leaves;
         
         Path path = Paths.get(INDY_CLIENT_DIRECTORY, genesis);
-        List<String> lines = Files.readAllLines(path); 
-        for(String line : lines){
-            leaves.add(new Leaf(fromJson(line)));
+        // lines are read lazily and converted in parallel, ordered stream keeps leaf order
+        try(Stream<String> lines = Files.lines(path, StandardCharsets.UTF_8)){
+            leaves = lines.parallel()
+                    .filter(new Predicate<String>() {
+                        @Override
+                        public boolean test(String line) {
+                            return !line.trim().isEmpty();
+                        }
+                    })
+                    .map(new Function<String, Leaf>() {
+                        @Override
+                        public Leaf apply(String line) {
+                            try {
+                                return new Leaf(fromJson(line));
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        }
+                    })
+                    .collect(Collectors.<Leaf>toList());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
         }
         
         try{
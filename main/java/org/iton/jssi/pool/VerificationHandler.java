@@ -0,0 +1,120 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 ITON Solutions.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.iton.jssi.pool;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import org.iton.jssi.pool.event.IPoolEvent;
+import org.iton.jssi.pool.event.ProofVerified;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.zeromq.SocketType;
+import org.zeromq.ZContext;
+import org.zeromq.ZMQ;
+
+/**
+ *
+ * @author ITON Solutions
+ * 
+ * Run state proof verification on executor outside of PoolThread,
+ * results are queued and PoolThread is woken up through inproc socket
+ */
+public class VerificationHandler {
+    
+    private static final Logger LOG = LoggerFactory.getLogger(VerificationHandler.class);
+    
+    private static final byte[] WAKE = new byte[0];
+    
+    private final ExecutorService executor;
+    private final ZMQ.Socket receiver;
+    private final ZMQ.Socket sender;
+    private final Queue<IPoolEvent> results = new ConcurrentLinkedQueue<>();
+    private boolean closed;
+    
+    public VerificationHandler(ZContext context, ExecutorService executor, int poolId){
+        this.executor = executor;
+        
+        String name = String.format("inproc://verify_%d", poolId);
+        receiver = context.createSocket(SocketType.PAIR);
+        receiver.bind(name);
+        sender = context.createSocket(SocketType.PAIR);
+        sender.connect(name);
+    }
+    
+    /**
+     * 
+     * @param reqId request the proof belongs to
+     * @param alias node replied with the proof
+     * @param job verification, true if proof is valid
+     */
+    public void submit(final String reqId, final String alias, final Callable<Boolean> job){
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                boolean verified;
+                try {
+                    verified = job.call();
+                } catch (Exception e) {
+                    LOG.error(String.format("Verification of reply %s from %s failed: %s", reqId, alias, e));
+                    verified = false;
+                }
+                results.add(new ProofVerified(reqId, alias, verified));
+                
+                // socket is owned by PoolThread, sends from executor threads are serialized
+                synchronized (sender) {
+                    if (!closed) {
+                        sender.send(WAKE, ZMQ.DONTWAIT);
+                    }
+                }
+            }
+        });
+    }
+    
+    public List<IPoolEvent> fetchEvents(){
+        while (receiver.recv(ZMQ.DONTWAIT) != null) {
+            // drain wake up signals, results are taken from queue
+        }
+        
+        List<IPoolEvent> result = new ArrayList<>();
+        IPoolEvent event;
+        while ((event = results.poll()) != null) {
+            result.add(event);
+        }
+        return result;
+    }
+    
+    public ZMQ.PollItem getPollItem(){
+        return new ZMQ.PollItem(receiver, ZMQ.Poller.POLLIN);
+    }
+    
+    public void close(){
+        synchronized (sender) {
+            closed = true;
+        }
+    }
+}
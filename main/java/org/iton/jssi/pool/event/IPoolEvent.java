@@ -51,6 +51,7 @@ public interface IPoolEvent {
         POOL_OUTDATED,
         NODE_BLACKLISTED,
         CLOSE,
+        PROOF_VERIFIED,
         NOP
     }
     
@@ -28,9 +28,15 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.iton.jssi.ledger.merkle.MerkleTree;
 import org.iton.jssi.pool.PoolHandler;
+import org.iton.jssi.pool.request.IRequestHandler;
 import org.iton.jssi.pool.request.event.CatchupRequest;
 import org.iton.jssi.pool.request.event.IRequestEvent;
 import org.iton.jssi.pool.request.event.LedgerStatus;
+import org.iton.jssi.pool.request.event.Reject;
+import org.iton.jssi.pool.request.event.ReqACK;
+import org.iton.jssi.pool.request.event.ReqNACK;
+import org.iton.jssi.pool.request.event.Reply;
+import org.iton.jssi.pool.state.Active;
 import org.iton.jssi.pool.state.IPoolState;
 import org.libsodium.jni.SodiumException;
 
@@ -86,15 +92,19 @@ public class NodeReply implements IPoolEvent{
                 break;
             }
             case REPLY:{
+                result = new Reply(reply, reply, alias, event.path("result").path("reqId").asText());
                 break;
             }
             case REQACK:{
+                result = new ReqACK(reply, alias, event.path("reqId").asText());
                 break;
             }
             case REQNACK:{
+                result = new ReqNACK(reply, alias, event.path("reqId").asText());
                 break;
             }
             case REJECT:{
+                result = new Reject(reply, alias, event.path("reqId").asText());
                 break;
             }
         }
@@ -110,8 +120,41 @@ public class NodeReply implements IPoolEvent{
     public void handleEvent(PoolHandler pool) throws SodiumException, JsonProcessingException {
         IPoolState current = pool.state;
         IRequestEvent event = requestEvent();
-        pool.request.handleEvent(event);
-        pool.handleEvent(pool.request.getEvent());
+        
+        String reqId = getReqId(event);
+        if(reqId == null){
+            // catchup and ledger status replies belong to pool ledger request
+            pool.request.handleEvent(event);
+            pool.handleEvent(pool.request.getEvent());
+        } else {
+            IRequestHandler handler = null;
+            if(current.getState() == IPoolState.State.ACTIVE){
+                handler = ((Active) current).handlers.get(reqId);
+            }
+            if(handler == null){
+                LOG.debug(String.format("Drop %s for unknown reqId %s", getEvent(), reqId));
+                return;
+            }
+            
+            handler.handleEvent(event);
+            if(handler.isTerminal()){
+                ((Active) current).handlers.remove(reqId);
+            }
+            pool.handleEvent(handler.getEvent());
+        }
         LOG.debug(String.format("Event %s (%s -> %s)", getEvent(), current.getState(), pool.state.getState()));
     }
+    
+    private static String getReqId(IRequestEvent event){
+        if(event instanceof Reply){
+            return ((Reply) event).reqId;
+        } else if(event instanceof ReqACK){
+            return ((ReqACK) event).reqId;
+        } else if(event instanceof ReqNACK){
+            return ((ReqNACK) event).reqId;
+        } else if(event instanceof Reject){
+            return ((Reject) event).reqId;
+        }
+        return null;
+    }
 }
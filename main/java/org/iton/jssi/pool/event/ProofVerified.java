@@ -0,0 +1,84 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 ITON Solutions.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.iton.jssi.pool.event;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.iton.jssi.pool.PoolHandler;
+import org.iton.jssi.pool.request.IRequestHandler;
+import org.iton.jssi.pool.request.event.IRequestEvent;
+import org.iton.jssi.pool.request.event.Verified;
+import org.iton.jssi.pool.state.Active;
+import org.iton.jssi.pool.state.IPoolState;
+import org.libsodium.jni.SodiumException;
+
+/**
+ *
+ * @author ITON Solutions
+ * 
+ * Result of state proof verification done outside of PoolThread
+ */
+public class ProofVerified implements IPoolEvent{
+    
+    public String reqId;
+    public String alias;
+    public boolean verified;
+    
+    public ProofVerified(String reqId, String alias, boolean verified){
+        this.reqId = reqId;
+        this.alias = alias;
+        this.verified = verified;
+    }
+
+    @Override
+    public Event getEvent() {
+        return Event.PROOF_VERIFIED;
+    }
+
+    @Override
+    public IRequestEvent requestEvent() {
+        return new Verified(reqId, alias, verified);
+    }
+
+    @Override
+    public void handleEvent(PoolHandler pool) throws SodiumException, JsonProcessingException {
+        IPoolState current = pool.state;
+        
+        IRequestHandler handler = null;
+        if(current.getState() == IPoolState.State.ACTIVE){
+            handler = ((Active) current).handlers.get(reqId);
+        }
+        if(handler == null){
+            // request finished or pool left ACTIVE before verification completed
+            LOG.debug(String.format("Drop %s for unknown reqId %s", getEvent(), reqId));
+            return;
+        }
+        
+        handler.handleEvent(requestEvent());
+        if(handler.isTerminal()){
+            ((Active) current).handlers.remove(reqId);
+        }
+        pool.handleEvent(handler.getEvent());
+        LOG.debug(String.format("Event %s (%s -> %s)", getEvent(), current.getState(), pool.state.getState()));
+    }
+}
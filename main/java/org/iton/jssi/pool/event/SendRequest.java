@@ -23,13 +23,33 @@
  */
 package org.iton.jssi.pool.event;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.iton.jssi.pool.PoolHandler;
+import org.iton.jssi.pool.parser.CustomParser;
+import org.iton.jssi.pool.proof.StateProofHelper;
+import org.iton.jssi.pool.request.IRequestHandler;
+import org.iton.jssi.pool.request.event.CustomConsensusRequest;
+import org.iton.jssi.pool.request.event.CustomFullRequest;
+import org.iton.jssi.pool.request.event.CustomSingleRequest;
 import org.iton.jssi.pool.request.event.IRequestEvent;
+import org.iton.jssi.pool.state.Active;
+import org.iton.jssi.pool.state.IPoolState;
+import org.iton.jssi.ursa.pair.CryptoException;
+import org.libsodium.jni.SodiumException;
+
+import static org.iton.jssi.ledger.LedgerConstants.*;
 
 
 /**
  *
  * @author ITON Solutions
+ * 
+ * Client request sent to pool in ACTIVE state.
+ * Requests to listed nodes are sent to all of them, requests with state proof are sent to single node
+ * and trusted on verified proof, other requests need consensus of nodes.
  */
 public class SendRequest implements IPoolEvent{
     
@@ -51,12 +71,69 @@ public class SendRequest implements IPoolEvent{
     }
 
     @Override
-    public IRequestEvent requestEvent() {
-        throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
+    public IRequestEvent requestEvent() throws JsonProcessingException {
+        return requestEvent((ObjectNode) new ObjectMapper().readTree(request));
+    }
+    
+    private IRequestEvent requestEvent(ObjectNode message){
+        String reqId = message.path("reqId").asText();
+        
+        if(nodes != null && nodes.length > 0){
+            return new CustomFullRequest(request, reqId, timeout == null ? null : timeout.longValue(), nodes);
+        }
+        
+        String type = message.path("operation").path("type").asText();
+        if(REQUESTS_FOR_STATE_PROOFS.contains(type)){
+            byte[] sp_key = StateProofHelper.parse_key_from_request_for_builtin_sp(message);
+            if(sp_key != null){
+                return new CustomSingleRequest(reqId, request, sp_key, getTimestamps(message.path("operation")));
+            }
+        } else if(CustomParser.contains(type)){
+            return new CustomSingleRequest(reqId, request, null, null);
+        }
+        return new CustomConsensusRequest(request, reqId);
+    }
+    
+    /**
+     * @return requested [from, to] in seconds for state proof freshness, null if request is for current state
+     */
+    private static long[] getTimestamps(JsonNode operation){
+        String type = operation.path("type").asText();
+        if(type.equals(GET_REVOC_REG_DELTA)){
+            return new long[]{operation.path("from").asLong(0L), operation.path("to").asLong(0L)};
+        }
+        if(operation.has("timestamp")){
+            return new long[]{0L, operation.get("timestamp").asLong(0L)};
+        }
+        return null;
     }
 
     @Override
-    public void handleEvent(PoolHandler pool) {
-        throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
+    public void handleEvent(PoolHandler pool) throws SodiumException, JsonProcessingException {
+        IPoolState current = pool.state;
+        
+        if(current.getState() != IPoolState.State.ACTIVE){
+            LOG.warn(String.format("Event %s in state %s is ignored", getEvent(), current.getState()));
+            return;
+        }
+        
+        ObjectNode message = (ObjectNode) new ObjectMapper().readTree(request);
+        String reqId = message.path("reqId").asText();
+        
+        IRequestHandler handler;
+        try {
+            handler = pool.createRequestHandler(cmdId);
+        } catch (CryptoException e) {
+            LOG.error(String.format("Can't create request handler %s", e.getMessage()));
+            return;
+        }
+        
+        handler.handleEvent(requestEvent(message));
+        if(!handler.isTerminal()){
+            // replies of nodes are routed to handler by reqId
+            ((Active) current).handlers.put(reqId, handler);
+        }
+        pool.handleEvent(handler.getEvent());
+        LOG.debug(String.format("Event %s (%s -> %s)", getEvent(), current.getState(), pool.state.getState()));
     }
 }
@@ -26,6 +26,7 @@ package org.iton.jssi.pool.event;
 import java.io.IOException;
 import java.util.HashMap;
 import org.iton.jssi.ledger.merkle.MerkleTree;
+import org.iton.jssi.pool.PoolCache;
 import org.iton.jssi.pool.PoolHandler;
 import org.iton.jssi.pool.network.event.NodesStateUpdated;
 import org.iton.jssi.pool.request.event.IRequestEvent;
@@ -64,6 +65,7 @@ public class Synced implements IPoolEvent{
             case GETTING_CATCHUP_TARGET:{
                 try {
                     pool.getVerkeys(tree);
+                    store(pool);
                     pool.network.handleEvent(new NodesStateUpdated(pool.remotes));
                     pool.state = new Active(new HashMap<>(), pool.verkeys);
                 } catch (IOException | SodiumException | CryptoException e) {
@@ -77,4 +79,13 @@ public class Synced implements IPoolEvent{
         
         LOG.debug(String.format("Event %s (%s -> %s)", getEvent(), current.getState(), pool.state.getState()));
     }
+    
+    private void store(PoolHandler pool){
+        try {
+            new PoolCache(pool.name).store(tree);
+        } catch (IOException e) {
+            // pool stays usable, next run catches up from genesis
+            LOG.warn(String.format("Pool cache of %s not stored: %s", pool.name, e.getMessage()));
+        }
+    }
 }
@@ -0,0 +1,127 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 ITON Solutions.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.iton.jssi.pool.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.List;
+
+/**
+ *
+ * @author ITON Solutions
+ * 
+ * Slim view of pool ledger transaction, only fields building node state are decoded.
+ * Absent fields stay null so that node updates can be folded over earlier state.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class NodeUpdate {
+    
+    public static final String NODE = "0";
+    
+    @JsonProperty("txn")
+    public Txn txn;
+    
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Txn {
+        @JsonProperty("type")
+        public String type;
+        @JsonProperty("data")
+        public Data data;
+    }
+    
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Data {
+        @JsonProperty("dest")
+        public String dest;
+        @JsonProperty("verkey")
+        public String verkey;
+        @JsonProperty("data")
+        public Node data;
+    }
+    
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Node {
+        @JsonProperty("alias")
+        public String alias;
+        @JsonProperty("client_ip")
+        public String client_ip;
+        @JsonProperty("client_port")
+        public Integer client_port;
+        @JsonProperty("node_ip")
+        public String node_ip;
+        @JsonProperty("node_port")
+        public Integer node_port;
+        @JsonProperty("services")
+        public List<String> services;
+        @JsonProperty("blskey")
+        public String blskey;
+        @JsonProperty("blskey_pop")
+        public String blskey_pop;
+    }
+    
+    public boolean isNode(){
+        return txn != null && NODE.equals(txn.type) && txn.data != null && txn.data.dest != null;
+    }
+    
+    /**
+     * Apply fields present in this update to node state
+     */
+    public void fold(NodeTransaction node){
+        TxnData data = node.getTxn().getData();
+        if(txn.data.verkey != null){
+            data.setVerkey(txn.data.verkey);
+        }
+        
+        Node update = txn.data.data;
+        if(update == null){
+            return;
+        }
+        
+        NodeData state = data.getData();
+        if(update.alias != null){
+            state.setAlias(update.alias);
+        }
+        if(update.client_ip != null){
+            state.setClientIP(update.client_ip);
+        }
+        if(update.client_port != null){
+            state.setClientPort(update.client_port);
+        }
+        if(update.node_ip != null){
+            state.setNodeIP(update.node_ip);
+        }
+        if(update.node_port != null){
+            state.setNodePort(update.node_port);
+        }
+        if(update.services != null){
+            state.setServices(update.services);
+        }
+        if(update.blskey != null){
+            state.setBlskey(update.blskey);
+        }
+        if(update.blskey_pop != null){
+            state.setBlskeyPop(update.blskey_pop);
+        }
+    }
+}
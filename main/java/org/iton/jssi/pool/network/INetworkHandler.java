@@ -39,6 +39,12 @@ public interface INetworkHandler {
     List<ZMQ.PollItem> getPollItems();
 
     PoolConnection.Timeout getTimeout();
+    
+    long getNextPing();
+    
+    long getNextReap();
+    
+    void close();
 
     void handleEvent(INetworkEvent event);
     
@@ -0,0 +1,182 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 ITON Solutions.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.iton.jssi.pool.network;
+
+import org.iton.jssi.pool.PoolConstants;
+import org.zeromq.ZContext;
+import org.zeromq.ZMQ;
+
+/**
+ *
+ * @author ITON Solutions
+ * 
+ * ZMQ tuning applied to context and every node socket of a pool.
+ * 
+ * Defaults favour throughput of fan-out requests:
+ * io threads 1 - one pool talks to a few tens of nodes, a single I/O thread is not the bottleneck
+ * linger 0 - pending messages are dropped on close, pool closes only when requests are done
+ * send/receive HWM 10000 - bursts of requests queue instead of being dropped at the ZMQ default of 1000
+ * TCP keepalive on, idle 120 s, interval 10 s, count 3 - kernel also detects dead peers behind NAT
+ * reconnect interval 100 ms, backing off to 10 s - fast first retry, no reconnect storm on node outage
+ * immediate off - messages are queued until connection completes, sockets are used right after connect
+ * ping jitter 5 s - capped at quarter of connection lifetime, 1.25 s for default lifetime
+ * reap interval 1 s - orphaned connections release sockets and I/O threads shortly after last request
+ */
+public class NetworkConfig {
+    
+    private int ioThreads = 1;
+    private int linger = 0;
+    private int sndHWM = 10000;
+    private int rcvHWM = 10000;
+    private int tcpKeepAlive = 1;
+    private long tcpKeepAliveIdle = 120;    // in sec
+    private long tcpKeepAliveInterval = 10; // in sec
+    private long tcpKeepAliveCount = 3;
+    private int reconnectIVL = 100;         // in msc
+    private int reconnectIVLMax = 10 * 1000; // in msc
+    private boolean immediate = false;
+    private long jitter = PoolConstants.POOL_PING_JITTER;
+    private long reap = 1000; // in msc
+    
+    public ZContext createContext(){
+        return new ZContext(ioThreads);
+    }
+    
+    public void apply(ZMQ.Socket socket){
+        socket.setLinger(linger);
+        socket.setSndHWM(sndHWM);
+        socket.setRcvHWM(rcvHWM);
+        socket.setTCPKeepAlive(tcpKeepAlive);
+        socket.setTCPKeepAliveIdle(tcpKeepAliveIdle);
+        socket.setTCPKeepAliveInterval(tcpKeepAliveInterval);
+        socket.setTCPKeepAliveCount(tcpKeepAliveCount);
+        socket.setReconnectIVL(reconnectIVL);
+        socket.setReconnectIVLMax(reconnectIVLMax);
+        socket.setImmediate(immediate);
+    }
+
+    public int getIoThreads() {
+        return ioThreads;
+    }
+
+    public void setIoThreads(int ioThreads) {
+        this.ioThreads = ioThreads;
+    }
+
+    public int getLinger() {
+        return linger;
+    }
+
+    public void setLinger(int linger) {
+        this.linger = linger;
+    }
+
+    public int getSndHWM() {
+        return sndHWM;
+    }
+
+    public void setSndHWM(int sndHWM) {
+        this.sndHWM = sndHWM;
+    }
+
+    public int getRcvHWM() {
+        return rcvHWM;
+    }
+
+    public void setRcvHWM(int rcvHWM) {
+        this.rcvHWM = rcvHWM;
+    }
+
+    public int getTcpKeepAlive() {
+        return tcpKeepAlive;
+    }
+
+    public void setTcpKeepAlive(int tcpKeepAlive) {
+        this.tcpKeepAlive = tcpKeepAlive;
+    }
+
+    public long getTcpKeepAliveIdle() {
+        return tcpKeepAliveIdle;
+    }
+
+    public void setTcpKeepAliveIdle(long tcpKeepAliveIdle) {
+        this.tcpKeepAliveIdle = tcpKeepAliveIdle;
+    }
+
+    public long getTcpKeepAliveInterval() {
+        return tcpKeepAliveInterval;
+    }
+
+    public void setTcpKeepAliveInterval(long tcpKeepAliveInterval) {
+        this.tcpKeepAliveInterval = tcpKeepAliveInterval;
+    }
+
+    public long getTcpKeepAliveCount() {
+        return tcpKeepAliveCount;
+    }
+
+    public void setTcpKeepAliveCount(long tcpKeepAliveCount) {
+        this.tcpKeepAliveCount = tcpKeepAliveCount;
+    }
+
+    public int getReconnectIVL() {
+        return reconnectIVL;
+    }
+
+    public void setReconnectIVL(int reconnectIVL) {
+        this.reconnectIVL = reconnectIVL;
+    }
+
+    public int getReconnectIVLMax() {
+        return reconnectIVLMax;
+    }
+
+    public void setReconnectIVLMax(int reconnectIVLMax) {
+        this.reconnectIVLMax = reconnectIVLMax;
+    }
+
+    public boolean isImmediate() {
+        return immediate;
+    }
+
+    public void setImmediate(boolean immediate) {
+        this.immediate = immediate;
+    }
+
+    public long getJitter() {
+        return jitter;
+    }
+
+    public void setJitter(long jitter) {
+        this.jitter = jitter;
+    }
+
+    public long getReap() {
+        return reap;
+    }
+
+    public void setReap(long reap) {
+        this.reap = reap;
+    }
+}
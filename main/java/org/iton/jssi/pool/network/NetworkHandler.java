@@ -25,9 +25,13 @@ package org.iton.jssi.pool.network;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeSet;
 import org.iton.jssi.pool.event.IPoolEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -45,14 +49,30 @@ public class NetworkHandler implements INetworkHandler {
     public Map<Integer, PoolConnection> pools = new HashMap<>();
     public Map<String, Integer> reqIds = new HashMap<>();
     public RemoteNode[] nodes = new RemoteNode[0];
+    public int version = 0; // bumped on each update of node set
+    
+    private long reaped = 0;   // connections closed since start
+    private long lastReap = new Date().getTime();
+    
+    // connections of current node set which may take more requests, least loaded first
+    private final TreeSet<PoolConnection> candidates = new TreeSet<>(new Comparator<PoolConnection>() {
+        
+        @Override
+        public int compare(PoolConnection first, PoolConnection second) {
+            int result = Integer.compare(first.getRequestCount(), second.getRequestCount());
+            return result != 0 ? result : Integer.compare(first.getId(), second.getId());
+        }
+    });
     String[] preordered;
     private final int limit;
     private final long active;
+    private final NetworkConfig config;
     
-    public NetworkHandler(long active, int limit, String[] preordered){
+    public NetworkHandler(long active, int limit, String[] preordered, NetworkConfig config){
         this.active = active;
         this.limit= limit;
         this.preordered = preordered;
+        this.config = config;
     }
     
     @Override
@@ -92,6 +112,65 @@ public class NetworkHandler implements INetworkHandler {
         }
     }
     
+    @Override
+    public long getNextPing() {
+        
+        long next = Long.MAX_VALUE;
+        
+        for(PoolConnection pool : pools.values()){
+            next = Math.min(next, pool.getNextPing());
+        }
+        return next;
+    }
+    
+    @Override
+    public long getNextReap() {
+        return pools.isEmpty() ? Long.MAX_VALUE : lastReap + config.getReap();
+    }
+    
+    /**
+     * Close and remove connections without active requests which are not used for new ones anymore
+     */
+    public void reap(){
+        
+        lastReap = new Date().getTime();
+        List<Integer> orphans = new ArrayList<>();
+
+        for (Integer index : pools.keySet()) {
+            PoolConnection pool = pools.get(index);
+            if (pool.isOrphaned()) {
+                orphans.add(index);
+            }
+        }
+
+        for (Integer index : orphans) {
+            remove(index);
+        }
+        
+        if(!orphans.isEmpty()){
+            LOG.debug(String.format("Reaped %d pool connections, live %d, reaped total %d", orphans.size(), getLiveCount(), reaped));
+        }
+    }
+    
+    @Override
+    public void close(){
+        for(PoolConnection pool : pools.values()){
+            pool.close();
+        }
+        pools.clear();
+        reqIds.clear();
+        candidates.clear();
+    }
+    
+    public void ping(){
+        
+        long now = new Date().getTime();
+        
+        for(PoolConnection pool : pools.values()){
+            pool.ping(now);
+        }
+    }
+    
     @Override
     public List<ZMQ.PollItem> getPollItems() {
         
@@ -110,31 +189,82 @@ public class NetworkHandler implements INetworkHandler {
         
         if(index != null){
             PoolConnection pool = pools.get(index);
-            pool.sendRequest(event);
-            reqIds.put(reqId, index);
+            send(pool, event);
             return;
         }
         
-        for(Integer key : pools.keySet()){
-            PoolConnection pool = pools.get(key);
-            if (pool != null 
-                    && pool.isActive() 
-                    && pool.getRequestCount() < limit
-                    && Arrays.equals(nodes, pool.getNodes())) {
-                
-                LOG.debug(String.format("Reuse pool connection id=%d", key));
-                pool.sendRequest(event);
-                reqIds.put(reqId, key);
-                return;
+        PoolConnection pool = select();
+        
+        if(pool != null){
+            LOG.debug(String.format("Reuse pool connection id=%d", pool.getId()));
+        } else {
+            index = Sequence.getNextId();
+            pool = new PoolConnection(index, version, nodes, active, preordered, config);
+            LOG.debug(String.format("Create pool connection id=%d", index));
+            pools.put(index, pool);
+            candidates.add(pool);
+        }
+        
+        send(pool, event);
+        reqIds.put(reqId, pool.getId());
+    }
+    
+    /**
+     * Least loaded active connection of current node set under requests limit.
+     * Connections are never active again once expired, so they are dropped from candidates
+     * 
+     * @return connection or null if new one should be created
+     */
+    private PoolConnection select(){
+        
+        while(!candidates.isEmpty()){
+            PoolConnection pool = candidates.first();
+            if(pool.isActive() && pool.getVersion() == version && pool.getRequestCount() < limit){
+                return pool;
             }
+            candidates.pollFirst();
         }
-       
-        index = Sequence.getNextId();
-        PoolConnection pool = new PoolConnection(nodes, active, preordered);
-        LOG.debug(String.format("Create pool connection id=%d", index));
-        pools.put(index, pool);
+        return null;
+    }
+    
+    private void send(PoolConnection pool, INetworkEvent event){
+        // request count is the ordering key, reinsert after it changes
+        boolean candidate = candidates.remove(pool);
         pool.sendRequest(event);
-        reqIds.put(reqId, index);
+        if(candidate && pool.getRequestCount() < limit){
+            candidates.add(pool);
+        }
+    }
+    
+    public void updateNodes(RemoteNode[] nodes){
+        this.nodes = nodes;
+        version++;
+        candidates.clear();
+    }
+    
+    public PoolConnection remove(Integer index){
+        PoolConnection pool = pools.remove(index);
+        if(pool != null){
+            candidates.remove(pool);
+            pool.close();
+            reaped++;
+            
+            Iterator<Integer> iterator = reqIds.values().iterator();
+            while(iterator.hasNext()){
+                if(index.equals(iterator.next())){
+                    iterator.remove();
+                }
+            }
+        }
+        return pool;
+    }
+    
+    public int getLiveCount(){
+        return pools.size();
+    }
+    
+    public long getReapedCount(){
+        return reaped;
     }
     
     @Override
@@ -24,6 +24,7 @@
  */
 package org.iton.jssi.pool.network;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
@@ -53,7 +54,10 @@ public class PoolConnection {
     
     private static final Logger LOG = LoggerFactory.getLogger(PoolConnection.class);
     
-    private final ZContext context = new ZContext();
+    private static final byte[] PING = PoolConstants.PING.getBytes(StandardCharsets.UTF_8);
+    
+    private final ZContext context;
+    private final NetworkConfig config;
     private Date created = new Date();
     
     private final Map<String, Holder> resends = new HashMap<>();
@@ -61,38 +65,140 @@ public class PoolConnection {
     
     private int requestCount = 0;
     
+    private final int id;
+    private final int version; // version of node set connection was created for
     private final RemoteNode[] nodes;
+    private final Map<String, Integer> indexes = new HashMap<>(); // alias -> index in nodes
     private final ZMQ.Socket[] sockets;
     private final long active;
     private final ZMQ.Curve.KeyPair pair = ZMQ.Curve.generateKeyPair();
     
+    // keep-alive state per socket
+    private final long[] activity; // last send or receive
+    private final long[] offsets;  // random jitter added to idle interval
+    private final long[] pings;    // time of unanswered ping, 0 if none
+    private final long ping;
+    private final long jitter;
+    private final Random random = new Random();
+    
     
-    public PoolConnection(RemoteNode[] nodes, long active, String[] preordered){
-        this.nodes = shuffle(nodes, preordered);
+    public PoolConnection(int id, int version, RemoteNode[] nodes, long active, String[] preordered, NetworkConfig config){
+        this.context = config.createContext();
+        this.config = config;
+        this.id = id;
+        this.version = version;
+        this.nodes = shuffle(nodes.clone(), preordered);
+        for(int index = 0; index < this.nodes.length; index++){
+            indexes.put(this.nodes[index].getName(), index);
+        }
         this.sockets = new ZMQ.Socket[nodes.length];
         this.active = active;
+        this.activity = new long[nodes.length];
+        this.offsets = new long[nodes.length];
+        this.pings = new long[nodes.length];
+        // idle socket is probed after half of connection lifetime, 2.5 s for POOL_CON_ACTIVE_TO of 5 s.
+        // Pings detect dead nodes while connection takes requests or waits for replies, they do not
+        // keep connection open, it is reaped once expired without active requests
+        this.ping = active / 2;
+        this.jitter = Math.min(config.getJitter(), this.ping / 2);
     }
     
     public List<ZMQ.PollItem> getPollItems(){
         
         List<ZMQ.PollItem> result = new ArrayList<>();
         
-        ZMQ.Poller items = context.createPoller(sockets.length);
         for(ZMQ.Socket socket : sockets){
-            int index = items.register(socket, ZMQ.Poller.POLLIN);
-            result.add(items.getItem(index));
+            result.add(new ZMQ.PollItem(socket, ZMQ.Poller.POLLIN));
         }
         return result;
     }
     
+    /**
+     * Close node sockets and release context I/O threads
+     */
+    public void close(){
+        context.destroy();
+        Arrays.fill(sockets, null);
+    }
+    
     private ZMQ.Socket getSocket(int index) {
         if (sockets[index] == null) {
-            ZMQ.Socket socket = nodes[index].connect(context, pair);
+            ZMQ.Socket socket = nodes[index].connect(context, pair, config);
             sockets[index] = socket;
         }
         return sockets[index];
     }
     
+    private void touch(int index, long now){
+        activity[index] = now;
+        pings[index] = 0;
+        offsets[index] = jitter > 0 ? (long) (random.nextDouble() * jitter) : 0;
+    }
+    
+    /**
+     * @return time socket becomes idle and is probed
+     */
+    private long getIdle(int index){
+        return activity[index] + ping + offsets[index];
+    }
+    
+    /**
+     * Send ping to sessions without traffic for ping interval. Node which did not answer
+     * previous ping within one interval is marked failed, its session is reconnected
+     * only if no request waits for reply from it
+     * 
+     * @param now current time in msc
+     */
+    public void ping(long now){
+        
+        if(ping <= 0){
+            return;
+        }
+        
+        for(int index = 0; index < sockets.length; index++){
+            if(sockets[index] == null){
+                continue;
+            }
+            
+            if(pings[index] != 0){
+                if(now - pings[index] >= ping){
+                    nodes[index].markFailed();
+                    if(hasActiveRequests(nodes[index].getName())){
+                        // replies still may come on this session, request timeouts handle the node
+                        LOG.debug(String.format("No pong from %s, requests pending", nodes[index].getName()));
+                    } else {
+                        LOG.debug(String.format("No pong from %s, reconnect", nodes[index].getName()));
+                        context.destroySocket(sockets[index]);
+                        sockets[index] = nodes[index].connect(context, pair, config);
+                    }
+                    touch(index, now);
+                }
+            } else if(now >= getIdle(index)){
+                sockets[index].send(PING, ZMQ.DONTWAIT);
+                pings[index] = now;
+            }
+        }
+    }
+    
+    /**
+     * @return time of next ping or ping expiration, Long.MAX_VALUE if nothing scheduled
+     */
+    public long getNextPing(){
+        long next = Long.MAX_VALUE;
+        
+        if(ping <= 0){
+            return next;
+        }
+        
+        for(int index = 0; index < sockets.length; index++){
+            if(sockets[index] == null){
+                continue;
+            }
+            next = Math.min(next, pings[index] != 0 ? pings[index] + ping : getIdle(index));
+        }
+        return next;
+    }
+    
     public boolean isActive(){
         return (new Date().getTime() - created.getTime()) < active;
     }
@@ -101,6 +207,18 @@ public class PoolConnection {
         return !timeouts.isEmpty();
     }
     
+    /**
+     * @return true if some request waits for reply from node
+     */
+    public boolean hasActiveRequests(String alias){
+        for(Key key : timeouts.keySet()){
+            if(key.alias.equals(alias)){
+                return true;
+            }
+        }
+        return false;
+    }
+    
     public boolean isOrphaned(){
         return !(isActive() || hasActiveRequests());
     }
@@ -118,27 +236,29 @@ public class PoolConnection {
                 
                 SendOneRequest request = (SendOneRequest) event;
                 requestCount++;
-                sendMessageToOneNode(0, request.reqId, request.message, request.timeout);
-                resends.put(request.reqId, new Holder(0, request.message));
+                byte[] frame = request.message.getBytes(StandardCharsets.UTF_8);
+                sendMessageToOneNode(0, request.reqId, frame, request.timeout);
+                resends.put(request.reqId, new Holder(0, frame));
                 break;
             }
             case SEND_ALL_REQUEST: {
                 
                 SendAllRequest request = (SendAllRequest) event;
                 requestCount++;
+                // encode once, same frame is handed to every socket
+                byte[] frame = request.message.getBytes(StandardCharsets.UTF_8);
                 // send to all nodes
                 if(request.nodes == null){
                     for (int index = 0; index < nodes.length; index++) {
-                        sendMessageToOneNode(index, request.reqId, request.message, request.timeout);
+                        sendMessageToOneNode(index, request.reqId, frame, request.timeout);
                     }
                     break;
                 }
                 // send to set of nodes
-                for (int index = 0; index < request.nodes.length; index++) {
-                    for (RemoteNode node : nodes) {
-                        if (node.getName().equals(request.nodes[index])) {
-                            sendMessageToOneNode(index, request.reqId, request.message, request.timeout);
-                        }
+                for (String name : request.nodes) {
+                    Integer index = indexes.get(name);
+                    if (index != null) {
+                        sendMessageToOneNode(index, request.reqId, frame, request.timeout);
                     }
                 }
                 break;
@@ -157,10 +277,14 @@ public class PoolConnection {
         }
     }
     
-    private void sendMessageToOneNode(int index, String reqId, String message, long timeout){
+    private void sendMessageToOneNode(int index, String reqId, byte[] frame, long timeout){
         ZMQ.Socket socket = getSocket(index);
-        socket.send(message, ZMQ.DONTWAIT);
-        timeouts.put(new Key(reqId, nodes[index].getName()), new Date().getTime() + timeout);
+        socket.send(frame, ZMQ.DONTWAIT);
+        long now = new Date().getTime();
+        if(pings[index] == 0){
+            touch(index, now);
+        }
+        timeouts.put(new Key(reqId, nodes[index].getName()), now + timeout);
     }
     
     public List<IPoolEvent> fetchEvents(ZMQ.PollItem[] pollItems) {
@@ -168,13 +292,24 @@ public class PoolConnection {
         List<IPoolEvent> events = new ArrayList<>();
         
         int index = 0;
+        long now = new Date().getTime();
         
         for(int i = 0; i < nodes.length; i++) {
             ZMQ.Socket socket = sockets[i];
             RemoteNode node = nodes[i];
             if(pollItems[index].isReadable()){
                 String message = socket.recvStr(ZMQ.DONTWAIT);
-                events.add(new NodeReply(node.getName(), message));
+                
+                if(PoolConstants.PONG.equals(message)){
+                    if(pings[i] != 0){
+                        node.updateRtt(now - pings[i], now);
+                    }
+                    touch(i, now);
+                } else {
+                    node.markSeen(now);
+                    touch(i, now);
+                    events.add(new NodeReply(node.getName(), message));
+                }
             }
             index++;
         }
@@ -261,6 +396,14 @@ public class PoolConnection {
         return sockets;
     }
 
+    public int getId() {
+        return id;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
     public int getRequestCount() {
         return requestCount;
     }
@@ -328,9 +471,9 @@ public class PoolConnection {
     private class Holder {
 
         public int count;
-        public String message;
+        public byte[] message;
 
-        public Holder(int count, String message) {
+        public Holder(int count, byte[] message) {
             this.count = count;
             this.message = message;
         }
@@ -343,14 +486,14 @@ public class PoolConnection {
 
             Holder item = (Holder) object;
 
-            return count == item.count && message.equals(item.message);
+            return count == item.count && Arrays.equals(message, item.message);
         }
 
         @Override
         public int hashCode() {
             int hash = 5;
             hash = 31 * hash + this.count;
-            hash = 31 * hash + Objects.hashCode(this.message);
+            hash = 31 * hash + Arrays.hashCode(this.message);
             return hash;
         }
 
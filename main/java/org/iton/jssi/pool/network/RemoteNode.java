@@ -38,6 +38,10 @@ public class RemoteNode {
     private String address;
     private boolean blacklisted;
     
+    private long rtt = -1;   // smoothed round trip time in msc, -1 until first pong
+    private long seen = 0;   // last time any message was received from node
+    private int failures = 0; // consecutive unanswered pings
+    
     public RemoteNode(final String name, final byte[] pk, final String address, boolean blacklisted){
         this.name = name;
         this.pk = pk;
@@ -45,14 +49,14 @@ public class RemoteNode {
         this.blacklisted = blacklisted;
     }
     
-    public ZMQ.Socket connect(ZContext context, ZMQ.Curve.KeyPair pair){
+    public ZMQ.Socket connect(ZContext context, ZMQ.Curve.KeyPair pair, NetworkConfig config){
         
         ZMQ.Socket socket = context.createSocket(SocketType.DEALER);
         socket.setIdentity(pair.publicKey.getBytes());
         socket.setCurveSecretKey(pair.secretKey.getBytes());
         socket.setCurvePublicKey(pair.publicKey.getBytes());
         socket.setCurveServerKey(pk);
-        socket.setLinger(0);
+        config.apply(socket);
         socket.connect(address);
         return socket;
     }
@@ -72,6 +76,43 @@ public class RemoteNode {
     public void setAddress(String address){
         this.address = address;
     }
+    
+    /**
+     * Node answered, fold round trip sample into smoothed value (1/8 weight as TCP SRTT)
+     * 
+     * @param sample round trip time of last ping in msc
+     * @param now current time in msc
+     */
+    public void updateRtt(long sample, long now){
+        rtt = rtt < 0 ? sample : rtt + (sample - rtt) / 8;
+        markSeen(now);
+    }
+    
+    public void markSeen(long now){
+        seen = now;
+        failures = 0;
+    }
+    
+    public void markFailed(){
+        failures++;
+    }
+
+    public long getRtt() {
+        return rtt;
+    }
+
+    public long getSeen() {
+        return seen;
+    }
+
+    public int getFailures() {
+        return failures;
+    }
+    
+    public boolean isHealthy(){
+        return failures == 0;
+    }
+    
     @Override
     public boolean equals(Object obj){
         if(!(obj instanceof RemoteNode)){
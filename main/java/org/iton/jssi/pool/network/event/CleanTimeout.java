@@ -47,11 +47,15 @@ public class CleanTimeout implements INetworkEvent{
     @Override
     public void handleRequest(NetworkHandler network) {
         Integer index = network.reqIds.get(reqId);
-        PoolConnection pool = network.pools.get(index);
+        PoolConnection pool = index == null ? null : network.pools.get(index);
+        if (pool == null) {
+            // connection already reaped
+            return;
+        }
         pool.cleanTimeout(reqId, alias);
 
         if (pool.isOrphaned()) {
-            network.pools.remove(index);
+            network.remove(index);
         }
 
         if (alias == null) {
@@ -38,7 +38,8 @@ public interface INetworkEvent {
         NODES_SATATE_UPDATED,
         SEND_ALL_REQUEST,
         SEND_ONE_REQUEST,
-        TIMEOUT
+        TIMEOUT,
+        PING
     }
     
     
@@ -47,6 +47,6 @@ public class NodesStateUpdated implements INetworkEvent{
 
     @Override
     public void handleRequest(NetworkHandler network) {
-        network.nodes = nodes;
+        network.updateNodes(nodes);
     }
 }
@@ -23,10 +23,7 @@
  */
 package org.iton.jssi.pool.network.event;
 
-import java.util.ArrayList;
-import java.util.List;
 import org.iton.jssi.pool.network.NetworkHandler;
-import org.iton.jssi.pool.network.PoolConnection;
 
 /**
  *
@@ -41,17 +38,6 @@ public class Timeout implements INetworkEvent{
 
     @Override
     public void handleRequest(NetworkHandler network) {
-        List<Integer> orphans = new ArrayList<>();
-
-        for (Integer index : network.pools.keySet()) {
-            PoolConnection pool = network.pools.get(index);
-            if (pool.isOrphaned()) {
-                orphans.add(index);
-            }
-        }
-
-        for (Integer index : orphans) {
-            network.pools.remove(index);
-        }
+        network.reap();
     }
 }
@@ -53,6 +53,11 @@ import static org.iton.jssi.ledger.LedgerConstants.*;
 public class BuiltinParser {
     
     private static final Logger LOG = LoggerFactory.getLogger(BuiltinParser.class);
+    
+    // fields of GET_TXN data added by node to ledger transaction
+    private static final String AUDIT_PATH = "auditPath";
+    private static final String ROOT_HASH = "rootHash";
+    private static final String LEDGER_SIZE = "ledgerSize";
 
     public static StateProof[] parse(ObjectNode reply, String type, byte[] sp_key) throws JsonProcessingException {
         
@@ -70,30 +75,32 @@ public class BuiltinParser {
             return new StateProof[0];
         }
         
-        Object result = reply.get("data");
+        JsonNode result = reply.get("data");
         
-        if (result instanceof String) {
-            data = (String) result;
+        if (result.isTextual()) {
+            data = result.asText();
             ObjectMapper mapper = new ObjectMapper();
             parsed = mapper.readTree(data);
-        } else if (result instanceof ObjectNode) {
-            data = result.toString();
-            parsed = result;
-        } else if (result instanceof ArrayNode) {
+        } else if (result.isObject() || result.isArray()) {
             data = result.toString();
             parsed = result;
-        } else {
+        } else if (!result.isNull()) {
             return null;
         }
+        // null data proves absence of the value
         
         List<StateProof> sps = new ArrayList<>();
         
         StateProof sp = parse(reply, data, parsed, type, sp_key);
-        sps.add(sp);
+        if(sp != null){
+            sps.add(sp);
+        }
         
         if(REQUESTS_FOR_MULTI_STATE_PROOFS.contains(type)){
             StateProof multi = parseMulti(reply, data, parsed, type, sp_key);
-            sps.add(multi);
+            if(multi != null){
+                sps.add(multi);
+            }
         }
         
         return sps.toArray(new StateProof[sps.size()]);
@@ -111,8 +118,30 @@ public class BuiltinParser {
      */
     private static StateProof parseMulti(ObjectNode reply, String data, Object parsed, String type, byte[] sp_key){
         
+        if(!(parsed instanceof ObjectNode)){
+            return null;
+        }
         
-        return null;
+        // accumulator at "from" is proved against older state, delta without "from" has no second proof
+        JsonNode state_proof = ((ObjectNode) parsed).get("stateProofFrom");
+        JsonNode accum = ((ObjectNode) parsed).path("value").get("accum_from");
+        if(state_proof == null || state_proof.isNull() || accum == null || accum.isNull()){
+            return null;
+        }
+        
+        ObjectNode value = JsonNodeFactory.instance.objectNode();
+        value.set("lsn", accum.get("seqNo"));
+        value.set("lut", accum.get("txnTime"));
+        value.set("val", accum.get("value"));
+        
+        StateProof<StateProofType.Simple<StateProofDataType.Simple>> sp = new StateProof<>();
+        sp.proof_nodes = state_proof.get("proof_nodes").asText();
+        sp.root_hash = state_proof.get("root_hash").asText();
+        sp.multi_signature = state_proof.get("multi_signature");
+        sp.kvs_to_verify = new StateProofType<>(new StateProofType.Simple<>());
+        sp.kvs_to_verify.getType().verificationType = new StateProofDataType<>(new StateProofDataType.Simple());
+        sp.kvs_to_verify.getType().keyValues.put(Base64.getEncoder().encodeToString(sp_key), value.toString());
+        return sp;
     }
     
     private static StateProof parse(ObjectNode reply, String data, Object parsed_data, String type, byte[] sp_key){
@@ -143,10 +172,14 @@ public class BuiltinParser {
         } else {
 
             JsonNode parsed = (JsonNode) parsed_data;
-            proof_nodes = parsed.get("audit_path").toString();
-            root_hash = parsed.get("root_hash").asText();
-            length = parsed.get("ledger_size").asInt();
-            multi_signature = parsed.get("multi_signature");
+            if(parsed == null || !parsed.has(AUDIT_PATH) || !parsed.has(ROOT_HASH) || !parsed.has(LEDGER_SIZE)){
+                return null;
+            }
+            proof_nodes = parsed.get(AUDIT_PATH).toString();
+            root_hash = parsed.get(ROOT_HASH).asText();
+            length = parsed.get(LEDGER_SIZE).asInt();
+            // ledger root is signed together with state, signature comes with state proof of reply
+            multi_signature = reply.path("state_proof").get("multi_signature");
 
             String value = parseValue(reply, data, parsed_data, type, sp_key);
 
@@ -181,8 +214,11 @@ public class BuiltinParser {
         }
 
         if(type.equals(GET_TXN)){
-            ObjectNode json_parser_data = (ObjectNode) parsed_data;
-            value = (ObjectNode) json_parser_data.get("txn");
+            // ledger leaf is whole transaction (txn, txnMetadata, reqSignature, ver) without proof of node
+            value = ((ObjectNode) parsed_data).deepCopy();
+            value.remove(AUDIT_PATH);
+            value.remove(ROOT_HASH);
+            value.remove(LEDGER_SIZE);
         } else if(type.equals(GET_NYM)){
             ObjectNode json_parser_data = (ObjectNode) parsed_data;
             value.set("identifier", json_parser_data.get("identifier"));
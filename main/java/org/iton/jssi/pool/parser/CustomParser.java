@@ -25,5 +25,63 @@
 
 package org.iton.jssi.pool.parser;
 
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.iton.jssi.pool.proof.StateProof;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+/**
+ *
+ * @author ITON Solutions
+ * 
+ * Registry of state proof parsers for custom transaction types, loaded once by ServiceLoader
+ */
 public class CustomParser {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CustomParser.class);
+
+    private static final Map<String, IProofParser> PARSERS = load();
+
+    private static Map<String, IProofParser> load(){
+        Map<String, IProofParser> result = new HashMap<>();
+        try {
+            for(IProofParser parser : ServiceLoader.load(IProofParser.class)){
+                for(String type : parser.getTypes()){
+                    IProofParser previous = result.put(type, parser);
+                    if(previous != null){
+                        LOG.warn(String.format("State proof parser %s replaces %s for type %s", parser.getClass().getName(), previous.getClass().getName(), type));
+                    }
+                }
+            }
+        } catch (ServiceConfigurationError e) {
+            LOG.error(String.format("Error loading state proof parsers %s", e.getMessage()));
+        }
+        LOG.debug(String.format("Loaded state proof parsers for types %s", result.keySet()));
+        return result;
+    }
+
+    public static boolean contains(String type){
+        return PARSERS.containsKey(type);
+    }
+
+    /**
+     * @return state proofs parsed by parser registered for type, null if there is no such parser
+     */
+    public static StateProof[] parse(ObjectNode reply, String type, String message){
+        IProofParser parser = PARSERS.get(type);
+        if(parser == null){
+            return null;
+        }
+        try {
+            return parser.parse(reply, message);
+        } catch (RuntimeException e) {
+            LOG.error(String.format("State proof parser for type %s failed: %s", type, e));
+            return new StateProof[0];
+        }
+    }
 }
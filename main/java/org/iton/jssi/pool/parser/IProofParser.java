@@ -0,0 +1,52 @@
+/*
+ *
+ *  The MIT License
+ *
+ *  Copyright 2019 ITON Solutions.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+
+package org.iton.jssi.pool.parser;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.iton.jssi.pool.proof.StateProof;
+
+import java.util.Set;
+
+/**
+ * State proof parser of custom transaction types.
+ * Implementations are discovered by ServiceLoader, listed in META-INF/services/org.iton.jssi.pool.parser.IProofParser
+ *
+ * @author ITON Solutions
+ */
+public interface IProofParser {
+
+    /**
+     * @return transaction types the parser handles
+     */
+    Set<String> getTypes();
+
+    /**
+     * @param reply result of node reply
+     * @param message whole node reply
+     * @return state proofs to verify, empty if reply carries none
+     */
+    StateProof[] parse(ObjectNode reply, String message);
+}
@@ -0,0 +1,110 @@
+/*
+ *
+ *  The MIT License
+ *
+ *  Copyright 2019 ITON Solutions.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+
+package org.iton.jssi.pool.proof;
+
+import org.iton.jssi.ledger.merkle.Leaf;
+import org.iton.jssi.ledger.merkle.MerkleTree;
+import org.iton.jssi.pool.util.Digests;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Inclusion proof of transaction in ledger Merkle tree (RFC 6962).
+ * Leaf hash is SHA-256(0x00 || leaf), node hash is SHA-256(0x01 || left || right),
+ * audit path lists sibling hashes from the leaf up to the root.
+ * Leaf is hashed by Merkle tree of ledger module, as root of single leaf tree. Ledger exposes no node hash,
+ * nodes are combined here, AuditPathTest checks paths of every leaf against roots of ledger trees.
+ *
+ * @author ITON Solutions
+ */
+public class AuditPath {
+
+    private static final byte NODE_PREFIX = 0x01;
+    private static final int HASH_SIZE = 32;
+
+    /**
+     * @param leaf serialized transaction
+     * @param index zero based position of transaction in ledger
+     * @param size ledger size root hash was computed for
+     * @param path sibling hashes from leaf to root
+     * @param root signed root hash
+     */
+    public static boolean verify(byte[] leaf, long index, long size, List<byte[]> path, byte[] root){
+
+        if(index < 0 || index >= size || root == null || root.length != HASH_SIZE){
+            return false;
+        }
+
+        byte[] hash;
+        try {
+            hash = new MerkleTree(Collections.singletonList(new Leaf(leaf))).build().getHash();
+        } catch (NoSuchAlgorithmException e) {
+            return false;
+        }
+        if(hash == null || hash.length != HASH_SIZE){
+            return false;
+        }
+        // running hash, every level is digested into the same buffer
+        hash = Arrays.copyOf(hash, HASH_SIZE);
+
+        MessageDigest digest = Digests.sha256();
+
+        long position = index;
+        long last = size - 1;
+
+        for(byte[] sibling : path){
+            if(last == 0 || sibling == null || sibling.length != HASH_SIZE){
+                return false;
+            }
+
+            digest.update(NODE_PREFIX);
+            if((position & 1) == 1 || position == last){
+                // current node is right child or has no right sibling on this level
+                digest.update(sibling);
+                digest.update(hash);
+                if((position & 1) == 0){
+                    while((position & 1) == 0 && position != 0){
+                        position >>= 1;
+                        last >>= 1;
+                    }
+                }
+            } else {
+                digest.update(hash);
+                digest.update(sibling);
+            }
+            Digests.digest(digest, hash, 0);
+
+            position >>= 1;
+            last >>= 1;
+        }
+
+        return last == 0 && MessageDigest.isEqual(hash, root);
+    }
+}
@@ -26,11 +26,20 @@
 package org.iton.jssi.pool.proof;
 
 public class Extension extends Node {
+    // path is slice of buffer node was decoded from
     byte[] path;
+    int pathOffset;
+    int pathLength;
     Node next;
 
     public Extension(byte[] path, Node next){
+        this(path, 0, path.length, next);
+    }
+
+    public Extension(byte[] path, int pathOffset, int pathLength, Node next){
         this.path = path;
+        this.pathOffset = pathOffset;
+        this.pathLength = pathLength;
         this.next = next;
     }
 
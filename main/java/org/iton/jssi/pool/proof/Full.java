@@ -28,11 +28,20 @@ package org.iton.jssi.pool.proof;
 public class Full extends Node {
 
     Node[] nodes = new Node[0];
+    // value is slice of buffer node was decoded from, null if full node has no value
     byte[] value = new byte[0];
+    int valueOffset;
+    int valueLength;
 
     public Full(Node[] nodes, byte[] value){
+        this(nodes, value, 0, value == null ? 0 : value.length);
+    }
+
+    public Full(Node[] nodes, byte[] value, int valueOffset, int valueLength){
         this.nodes = nodes;
         this.value = value;
+        this.valueOffset = valueOffset;
+        this.valueLength = valueLength;
     }
 
     @Override
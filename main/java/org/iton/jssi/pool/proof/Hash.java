@@ -26,10 +26,17 @@
 package org.iton.jssi.pool.proof;
 
 public class Hash extends Node {
+    // 32 bytes hash at offset of buffer node was decoded from
     byte[] hash;
+    int hashOffset;
 
     public Hash(byte[] hash){
+        this(hash, 0);
+    }
+
+    public Hash(byte[] hash, int hashOffset){
         this.hash = hash;
+        this.hashOffset = hashOffset;
     }
 
     @Override
@@ -26,12 +26,25 @@
 package org.iton.jssi.pool.proof;
 
 public class Leaf extends Node{
+    // path and value are slices of buffer node was decoded from
     byte[] path = new byte[0];
+    int pathOffset;
+    int pathLength;
     byte[] value = new byte[0];
+    int valueOffset;
+    int valueLength;
 
     public Leaf(byte[] path, byte[] value){
+        this(path, 0, path.length, value, 0, value.length);
+    }
+
+    public Leaf(byte[] path, int pathOffset, int pathLength, byte[] value, int valueOffset, int valueLength){
         this.path = path;
+        this.pathOffset = pathOffset;
+        this.pathLength = pathLength;
         this.value = value;
+        this.valueOffset = valueOffset;
+        this.valueLength = valueLength;
     }
     @Override
     public Type getType() {
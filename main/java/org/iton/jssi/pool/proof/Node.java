@@ -25,18 +25,15 @@
 
 package org.iton.jssi.pool.proof;
 
+import org.iton.jssi.pool.util.Digests;
 import org.iton.jssi.ursa.rlp.DecodeException;
-import org.iton.jssi.ursa.rlp.RLPItem;
-import org.iton.jssi.ursa.rlp.RLPList;
 import org.iton.jssi.ursa.rlp.UnrecoverableDecodeException;
 import org.iton.jssi.ursa.util.Bytes;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.spongycastle.jcajce.provider.digest.SHA3;
 
 import java.util.*;
 
-import static org.iton.jssi.ursa.rlp.RLPDecoder.RLP_STRICT;
 
 public abstract class Node {
 
@@ -45,6 +42,12 @@ public abstract class Node {
     static final byte IS_LEAF_MASK = 0x20;
     static final byte IS_PATH_ODD_MASK = 0x10;
 
+    // slice of RLP encoding the node was decoded from, hash is computed once from it
+    private byte[] encoded;
+    private int encodedOffset;
+    private int encodedLength;
+    private byte[] hash;
+
     public enum Type{
         FULL,
         EXTENSION,
@@ -55,50 +58,60 @@ public abstract class Node {
 
     public abstract Type getType();
 
-    public String getHash() throws DecodeException {
-        RLPNodeAdapter adapter = new RLPNodeAdapter();
-        RLPItem item = adapter.encode(this);
-        SHA3.DigestSHA3 digest = new SHA3.Digest256();
-        return Bytes.toHex(digest.digest(item.bytes()));
+    void setEncoded(byte[] encoded){
+        setEncoded(encoded, 0, encoded.length, null);
     }
 
-    public String getStringValue(Map<String, Node> trie, byte[] path) throws DecodeException {
-        byte[] value = getValue(trie, path);
-        return value == null ? null : new String(value);
+    void setEncoded(byte[] buffer, int offset, int length, byte[] hash){
+        this.encoded = buffer;
+        this.encodedOffset = offset;
+        this.encodedLength = length;
+        this.hash = hash;
+    }
+
+    static byte[] digest(byte[] bytes){
+        return digest(bytes, 0, bytes.length);
     }
 
-    public byte[] getValue(Map<String, Node> trie, byte[] path) throws DecodeException {
-        byte[] nibble = pathToNibbles(path);
-        byte[] value = _getValue(trie, nibble);
+    static byte[] digest(byte[] buffer, int offset, int length){
+        return Digests.sha3(buffer, offset, length);
+    }
 
-        if(value != null){
-            RLPItem item = RLP_STRICT.collectAll(value).get(0);
-            if(item.isList()) {
-                List<RLPItem> elements = ((RLPList) item).elements(RLP_STRICT);
-                RLPItem element = elements.remove(elements.size() - 1);
-                return element.data();
+    public byte[] hash() throws DecodeException {
+        if(hash == null){
+            if(encoded == null){
+                RLPNodeAdapter adapter = new RLPNodeAdapter();
+                hash = digest(adapter.encode(this).bytes());
+            } else {
+                hash = digest(encoded, encodedOffset, encodedLength);
             }
         }
-        return null;
+        return hash;
     }
 
-    private byte[] _getValue(Map<String, Node> trie, byte[] path) throws DecodeException {
+    public String getHash() throws DecodeException {
+        return Bytes.toHex(hash());
+    }
 
-        Node node = _getNode(trie, path, new byte[0]);
+    public String getStringValue(NodeIndex trie, byte[] path) throws DecodeException {
+        byte[] value = getValue(trie, path);
+        return value == null ? null : new String(value);
+    }
+
+    public byte[] getValue(NodeIndex trie, byte[] path) throws DecodeException {
+
+        Node node = _findNode(trie, path, 0);
 
         if(node != null){
             switch(node.getType()) {
                 case FULL: {
                     Full full = (Full) node;
-                    return full.value;
+                    return full.value == null ? null : decodeValue(full.value, full.valueOffset, full.valueLength);
                 }
                 case LEAF:{
                     Leaf leaf = (Leaf) node;
-                    return leaf.value;
+                    return decodeValue(leaf.value, leaf.valueOffset, leaf.valueLength);
                 }
-                case HASH:
-                case EXTENSION:
-                case BLANK:
                 default:
                     return null;
             }
@@ -106,133 +119,191 @@ public abstract class Node {
         return null;
     }
 
-    public Map<String, String> getAllValues(Map<String, Node> trie, byte[] prefix) throws DecodeException {
-
-        Node node = getNode(trie, prefix);
-        if(node == null){
-            node = this;
-            prefix = new byte[0];
+    /**
+     * Value stored in trie is RLP list, actual value is its last element
+     */
+    private static byte[] decodeValue(byte[] buffer, int offset, int length) throws DecodeException {
+        RLPReader reader = new RLPReader(buffer).read(offset);
+        if(reader.end > offset + length){
+            throw new UnrecoverableDecodeException("Unexpected data format of value in Patricia Merkle Trie");
         }
-        Map<byte[], String> values= node._getAllValues(trie, prefix);
-        Map<String, String> result = new HashMap<>();
-        for(byte[] key : values.keySet()){
-            result.put(nibbleToString(key), values.get(key));
+        if(reader.isList() && reader.length > 0) {
+            int end = reader.end;
+            int last = reader.offset;
+            for(int position = reader.offset; position < end; position = reader.end){
+                last = position;
+                reader.read(position);
+            }
+            reader.read(last);
+            return Arrays.copyOfRange(buffer, reader.offset, reader.end);
         }
+        return null;
+    }
+
+    public Map<String, String> getAllValues(NodeIndex trie, byte[] prefix) throws DecodeException {
 
+        final Map<String, String> result = new HashMap<>();
+        visit(trie, prefix, new Visitor() {
+            @Override
+            public boolean descend(Prefix prefix) {
+                return true;
+            }
+
+            @Override
+            public boolean visit(Prefix prefix, byte[] value) {
+                result.put(prefix.toKey(), new String(value));
+                return true;
+            }
+        }, true);
         return result;
+    }
+
+    /**
+     * Walk values stored under prefix without collecting them
+     *
+     * @return false if visitor stopped the walk
+     */
+    boolean visitAll(NodeIndex trie, byte[] prefix, Visitor visitor) throws DecodeException {
+        return visit(trie, prefix, visitor, false);
+    }
+
+    /**
+     * @param fallback walk whole trie if nothing is stored under prefix
+     */
+    private boolean visit(NodeIndex trie, byte[] prefix, Visitor visitor, boolean fallback) throws DecodeException {
 
+        Prefix stack = new Prefix(2 * prefix.length);
+        int[] seen = new int[1];
+
+        Node node = _getNode(trie, prefix, 0, seen);
+        if(node == null){
+            return !fallback || _visit(trie, stack, visitor);
+        }
+        // nibbles consumed on the way to node are the common prefix of all keys below it
+        for(int i = 0; i < seen[0]; i++){
+            stack.push(nibble(prefix, i));
+        }
+        return node._visit(trie, stack, visitor);
     }
 
-    public Map<byte[], String> _getAllValues(Map<String, Node> trie, byte[] prefix) throws DecodeException {
+    private boolean _visit(NodeIndex trie, Prefix prefix, Visitor visitor) throws DecodeException {
+
+        int depth = prefix.depth;
 
         switch(this.getType()){
             case FULL:{
                 Full full = (Full) this;
-                Map<byte[], String> result = new HashMap<>();
 
-                for(int i = 0; i < 0x0F; i++){
+                for(int i = 0; i < RLPNodeAdapter.RADIX; i++){
                     Node node = full.nodes[i];
-                    byte[] nibble = Bytes.concat(prefix, new byte[]{(byte) i});
-                    Map<byte[], String> values = node._getAllValues(trie, nibble);
-                    result.putAll(values);
+                    if(node == null){
+                        continue;
+                    }
+                    prefix.push(i);
+                    boolean next = !visitor.descend(prefix) || node._visit(trie, prefix, visitor);
+                    prefix.depth = depth;
+                    if(!next){
+                        return false;
+                    }
                 }
                 if(full.value != null){
-                    RLPItem item = RLP_STRICT.collectAll(full.value).get(0);
-                    if(item.isList()){
-                        List<RLPItem> elements = ((RLPList) item).elements(RLP_STRICT);
-                        RLPItem element = elements.remove(elements.size() - 1);
-                        result.put(prefix, new String(element.data()));
+                    byte[] value = decodeValue(full.value, full.valueOffset, full.valueLength);
+                    if(value != null && !visitor.visit(prefix, value)){
+                        return false;
                     }
                 }
-                return result;
+                return true;
             }
             case EXTENSION:{
                 Extension extension = (Extension) this;
 
-                boolean isLeaf = (extension.path[0] & IS_LEAF_MASK) == IS_LEAF_MASK;
+                boolean isLeaf = (extension.path[extension.pathOffset] & IS_LEAF_MASK) == IS_LEAF_MASK;
                 if(isLeaf){
                     throw new UnrecoverableDecodeException("Incorrect Patricia Merkle Trie: node marked as extension but path contains leaf flag");
                 }
 
-                byte[] pairPath = parsePath(extension.path);
-                prefix = Bytes.concat(prefix, pairPath);
-                return extension.next._getAllValues(trie, prefix);
+                prefix.pushPath(extension.path, extension.pathOffset, extension.pathLength);
+                boolean next = !visitor.descend(prefix) || extension.next._visit(trie, prefix, visitor);
+                prefix.depth = depth;
+                return next;
             }
             case LEAF:{
                 Leaf leaf = (Leaf) this;
 
-                boolean isLeaf = (leaf.path[0] & IS_LEAF_MASK) == IS_LEAF_MASK;
+                boolean isLeaf = (leaf.path[leaf.pathOffset] & IS_LEAF_MASK) == IS_LEAF_MASK;
                 if(!isLeaf){
                     throw new UnrecoverableDecodeException("Incorrect Patricia Merkle Trie: node marked as leaf but path contains extension flag");
                 }
 
-                byte[] pairPath = parsePath(leaf.path);
-                RLPItem item = RLP_STRICT.collectAll(leaf.value).get(0);
-                if(item.isList()){
-                    List<RLPItem> elements = ((RLPList) item).elements(RLP_STRICT);
-                    RLPItem element = elements.remove(elements.size() - 1);
-                    Map<byte[], String> result = new HashMap<>();
-                    result.put(Bytes.concat(prefix, pairPath), new String(element.data()));
-                    return result;
+                byte[] value = decodeValue(leaf.value, leaf.valueOffset, leaf.valueLength);
+                if(value == null){
+                    throw new UnrecoverableDecodeException("Unexpected data format of value in Patricia Merkle Trie");
                 }
-                throw new UnrecoverableDecodeException("Unexpected data format of value in Patricia Merkle Trie");
+                prefix.pushPath(leaf.path, leaf.pathOffset, leaf.pathLength);
+                boolean next = visitor.visit(prefix, value);
+                prefix.depth = depth;
+                return next;
             }
             case HASH:{
                 Hash hash = (Hash) this;
-                String key = Bytes.toHex(hash.hash);
-                Node next = trie.get(key);
+                Node next = trie.get(hash.hash, hash.hashOffset);
                 if(next != null){
-                    return next._getAllValues(trie, prefix);
+                    return next._visit(trie, prefix, visitor);
                 }
                 throw new UnrecoverableDecodeException("Incorrect Patricia Merkle Trie: empty hash node when it should not be empty");
             }
             case BLANK:
             default:
-                return new HashMap<>();
+                return true;
         }
     }
 
-    public Node getNode(Map<String, Node> trie, byte[] path) throws DecodeException {
-        byte[] nibble = pathToNibbles(path);
-        return _getNode(trie, nibble, new byte[0]);
+    public Node getNode(NodeIndex trie, byte[] path) throws DecodeException {
+        return _getNode(trie, path, 0, null);
     }
 
-    private Node _getNode(Map<String, Node> trie, byte[] path, byte[] seen) throws DecodeException {
+    /**
+     * Node under which all keys starting with key[offset..] are stored
+     *
+     * @param key key bytes, addressed by nibble
+     * @param offset nibbles of key already consumed
+     * @param seen optional, receives number of nibbles consumed on the way to returned node
+     */
+    private Node _getNode(NodeIndex trie, byte[] key, int offset, int[] seen) throws DecodeException {
+
+        int remaining = 2 * key.length - offset;
 
         switch(this.getType()){
             case FULL:{
-                if(path.length == 0){
-                    return this;
+                if(remaining == 0){
+                    return seen(seen, offset);
                 }
                 Full full = (Full) this;
-                Node next = full.nodes[path[0]];
+                Node next = full.nodes[nibble(key, offset)];
                 if(next != null) {
-                    seen = Bytes.concat(seen, new byte[]{path[0]});
-                    return next._getNode(trie, Arrays.copyOfRange(path, 1, path.length), seen);
+                    return next._getNode(trie, key, offset + 1, seen);
                 }
                 return null;
             }
             case HASH:{
                 Hash hash = (Hash) this;
-                String key = Bytes.toHex(hash.hash);
-                Node next = trie.get(key);
+                Node next = trie.get(hash.hash, hash.hashOffset);
                 if(next != null){
-                    return next._getNode(trie, path, seen);
+                    return next._getNode(trie, key, offset, seen);
                 }
                 throw new UnrecoverableDecodeException("Incomplete key-value DB for Patricia Merkle Trie to get value by the key");
             }
             case LEAF:{
                 Leaf leaf = (Leaf) this;
 
-                boolean isLeaf = (leaf.path[0] & IS_LEAF_MASK) == IS_LEAF_MASK;
+                boolean isLeaf = (leaf.path[leaf.pathOffset] & IS_LEAF_MASK) == IS_LEAF_MASK;
                 if(!isLeaf){
                     throw new UnrecoverableDecodeException("Incorrect Patricia Merkle Trie: node marked as leaf but path contains extension flag");
                 }
 
-                byte[] pairPath = parsePath(leaf.path);
                 // pair start with path
-                if(Bytes.indexOf(pairPath, path) == 0){
-                    return leaf;
+                if(remaining <= pathLength(leaf.path, leaf.pathOffset, leaf.pathLength) && matches(leaf.path, leaf.pathOffset, key, offset, remaining)){
+                    return seen(seen, offset);
                 } else {
                     return null;
                 }
@@ -240,20 +311,19 @@ public abstract class Node {
             case EXTENSION:{
                 Extension extension = (Extension) this;
 
-                boolean isLeaf = (extension.path[0] & IS_LEAF_MASK) == IS_LEAF_MASK;
+                boolean isLeaf = (extension.path[extension.pathOffset] & IS_LEAF_MASK) == IS_LEAF_MASK;
                 if(isLeaf){
                     throw new UnrecoverableDecodeException("Incorrect Patricia Merkle Trie: node marked as extension but path contains leaf flag");
                 }
 
-                byte[] pairPath = parsePath(extension.path);
+                int length = pathLength(extension.path, extension.pathOffset, extension.pathLength);
 
-                if(Bytes.indexOf(path, pairPath) == 0) {
+                if(remaining >= length && matches(extension.path, extension.pathOffset, key, offset, length)) {
                     // path start with pair
-                    seen = Bytes.concat(seen, pairPath);
-                    return extension.next._getNode(trie, Arrays.copyOfRange(path, pairPath.length, path.length), seen);
-                } else if(Bytes.indexOf(pairPath, path) == 0){
+                    return extension.next._getNode(trie, key, offset + length, seen);
+                } else if(remaining < length && matches(extension.path, extension.pathOffset, key, offset, remaining)){
                     // pair start with path
-                    return extension;
+                    return seen(seen, offset);
                 } else {
                     return null;
                 }
@@ -265,29 +335,250 @@ public abstract class Node {
         }
     }
 
-    private byte[] parsePath(byte[] path){
-        byte[] nibbles = pathToNibbles(Arrays.copyOfRange(path, 1, path.length));
-        if((path[0] & IS_PATH_ODD_MASK) == IS_PATH_ODD_MASK) {
-            nibbles = Bytes.put(nibbles, (byte) (path[0] & 0x0F), 0);
+    /**
+     * Resolve values of several keys in one descent, nodes on shared paths are visited once
+     *
+     * @param keys keys sorted in unsigned lexicographic order
+     * @param values receives value of key at the same index, null if key is absent
+     */
+    void findAll(NodeIndex trie, byte[][] keys, byte[][] values) throws DecodeException {
+        _findAll(trie, keys, values, 0, keys.length, 0);
+    }
+
+    private void _findAll(NodeIndex trie, byte[][] keys, byte[][] values, int from, int to, int offset) throws DecodeException {
+
+        if(from >= to){
+            return;
         }
-        return nibbles;
+
+        switch(this.getType()){
+            case FULL:{
+                Full full = (Full) this;
+
+                int i = from;
+                // exhausted keys sort first in the group
+                while(i < to && 2 * keys[i].length == offset){
+                    values[i] = full.value == null ? null : decodeValue(full.value, full.valueOffset, full.valueLength);
+                    i++;
+                }
+                while(i < to){
+                    int nibble = nibble(keys[i], offset);
+                    int j = i + 1;
+                    while(j < to && nibble(keys[j], offset) == nibble){
+                        j++;
+                    }
+                    Node next = full.nodes[nibble];
+                    if(next != null){
+                        next._findAll(trie, keys, values, i, j, offset + 1);
+                    }
+                    i = j;
+                }
+                return;
+            }
+            case HASH:{
+                Hash hash = (Hash) this;
+                Node next = trie.get(hash.hash, hash.hashOffset);
+                if(next != null){
+                    next._findAll(trie, keys, values, from, to, offset);
+                    return;
+                }
+                throw new UnrecoverableDecodeException("Incomplete key-value DB for Patricia Merkle Trie to get value by the key");
+            }
+            case LEAF:{
+                Leaf leaf = (Leaf) this;
+
+                boolean isLeaf = (leaf.path[leaf.pathOffset] & IS_LEAF_MASK) == IS_LEAF_MASK;
+                if(!isLeaf){
+                    throw new UnrecoverableDecodeException("Incorrect Patricia Merkle Trie: node marked as leaf but path contains extension flag");
+                }
+
+                int length = pathLength(leaf.path, leaf.pathOffset, leaf.pathLength);
+                byte[] value = null;
+                for(int i = from; i < to; i++){
+                    if(2 * keys[i].length - offset == length && matches(leaf.path, leaf.pathOffset, keys[i], offset, length)){
+                        value = value == null ? decodeValue(leaf.value, leaf.valueOffset, leaf.valueLength) : value;
+                        values[i] = value;
+                    }
+                }
+                return;
+            }
+            case EXTENSION:{
+                Extension extension = (Extension) this;
+
+                boolean isLeaf = (extension.path[extension.pathOffset] & IS_LEAF_MASK) == IS_LEAF_MASK;
+                if(isLeaf){
+                    throw new UnrecoverableDecodeException("Incorrect Patricia Merkle Trie: node marked as extension but path contains leaf flag");
+                }
+
+                int length = pathLength(extension.path, extension.pathOffset, extension.pathLength);
+
+                // keys continuing through extension are contiguous in sorted group
+                int start = -1;
+                int end = -1;
+                for(int i = from; i < to; i++){
+                    boolean match = 2 * keys[i].length - offset >= length && matches(extension.path, extension.pathOffset, keys[i], offset, length);
+                    if(match){
+                        start = start < 0 ? i : start;
+                        end = i + 1;
+                    }
+                }
+                if(start >= 0){
+                    extension.next._findAll(trie, keys, values, start, end, offset + length);
+                }
+                return;
+            }
+            case BLANK:
+            default:
+        }
+    }
+
+    /**
+     * Node holding value of exactly key[offset..], no allocation on the way
+     */
+    private Node _findNode(NodeIndex trie, byte[] key, int offset) throws DecodeException {
+
+        int remaining = 2 * key.length - offset;
+
+        switch(this.getType()){
+            case FULL:{
+                if(remaining == 0){
+                    return this;
+                }
+                Full full = (Full) this;
+                Node next = full.nodes[nibble(key, offset)];
+                return next == null ? null : next._findNode(trie, key, offset + 1);
+            }
+            case HASH:{
+                Hash hash = (Hash) this;
+                Node next = trie.get(hash.hash, hash.hashOffset);
+                if(next != null){
+                    return next._findNode(trie, key, offset);
+                }
+                throw new UnrecoverableDecodeException("Incomplete key-value DB for Patricia Merkle Trie to get value by the key");
+            }
+            case LEAF:{
+                Leaf leaf = (Leaf) this;
+
+                boolean isLeaf = (leaf.path[leaf.pathOffset] & IS_LEAF_MASK) == IS_LEAF_MASK;
+                if(!isLeaf){
+                    throw new UnrecoverableDecodeException("Incorrect Patricia Merkle Trie: node marked as leaf but path contains extension flag");
+                }
+                return remaining == pathLength(leaf.path, leaf.pathOffset, leaf.pathLength) && matches(leaf.path, leaf.pathOffset, key, offset, remaining) ? leaf : null;
+            }
+            case EXTENSION:{
+                Extension extension = (Extension) this;
+
+                boolean isLeaf = (extension.path[extension.pathOffset] & IS_LEAF_MASK) == IS_LEAF_MASK;
+                if(isLeaf){
+                    throw new UnrecoverableDecodeException("Incorrect Patricia Merkle Trie: node marked as extension but path contains leaf flag");
+                }
+
+                int length = pathLength(extension.path, extension.pathOffset, extension.pathLength);
+                if(remaining >= length && matches(extension.path, extension.pathOffset, key, offset, length)){
+                    return extension.next._findNode(trie, key, offset + length);
+                }
+                return null;
+            }
+            case BLANK:
+            default:{
+                return null;
+            }
+        }
+    }
+
+    private Node seen(int[] seen, int offset){
+        if(seen != null){
+            seen[0] = offset;
+        }
+        return this;
+    }
+
+    /**
+     * @return nibble at index of byte array
+     */
+    static int nibble(byte[] bytes, int index){
+        byte value = bytes[index >> 1];
+        return (index & 1) == 0 ? (value >> 4) & 0x0F : value & 0x0F;
+    }
+
+    /**
+     * @return number of nibbles in hex-prefix encoded path
+     */
+    static int pathLength(byte[] path, int offset, int length){
+        return 2 * (length - 1) + ((path[offset] & IS_PATH_ODD_MASK) == IS_PATH_ODD_MASK ? 1 : 0);
+    }
+
+    /**
+     * @return nibble at index of hex-prefix encoded path, odd path keeps first nibble in the flags byte
+     */
+    static int pathNibble(byte[] path, int offset, int index){
+        if((path[offset] & IS_PATH_ODD_MASK) == IS_PATH_ODD_MASK){
+            return index == 0 ? path[offset] & 0x0F : nibble(path, 2 * offset + index + 1);
+        }
+        return nibble(path, 2 * offset + index + 2);
     }
 
-    private String nibbleToString(byte[] nibble){
-        byte[] result = new byte[nibble.length / 2];
-        for(int i = 0; i < result.length; i++){
-            result[i] = (byte) ((nibble[2 * i] << 4) | nibble[2 * i + 1] & 0x0F);
+    /**
+     * @return true if first count nibbles of path are equal to nibbles of key starting at offset
+     */
+    static boolean matches(byte[] path, int pathOffset, byte[] key, int offset, int count){
+        for(int i = 0; i < count; i++){
+            if(pathNibble(path, pathOffset, i) != nibble(key, offset + i)){
+                return false;
+            }
         }
-        return new String(result);
+        return true;
     }
 
-    private byte[] pathToNibbles(byte[] path){
-        byte[] nibbles = new byte[2 * path.length];
-        for(int i = 0; i < path.length; i++) {
-            nibbles[2 * i] = (byte) (path[i] >> 4);
-            nibbles[2 * i + 1] = (byte) (path[i] & 0x0F);
+    /**
+     * Callback of value walk, prefix holds nibbles of the key from the root
+     */
+    interface Visitor {
+
+        /**
+         * @return false to skip subtree under prefix
+         */
+        boolean descend(Prefix prefix);
+
+        /**
+         * @return false to stop the walk
+         */
+        boolean visit(Prefix prefix, byte[] value);
+    }
+
+    /**
+     * Reusable stack of nibbles seen from the root during range collection
+     */
+    static final class Prefix {
+
+        byte[] nibbles;
+        int depth;
+
+        Prefix(int capacity){
+            nibbles = new byte[Math.max(capacity, 64)];
+        }
+
+        void push(int nibble){
+            if(depth == nibbles.length){
+                nibbles = Arrays.copyOf(nibbles, 2 * depth);
+            }
+            nibbles[depth++] = (byte) nibble;
+        }
+
+        void pushPath(byte[] path, int offset, int size){
+            int length = pathLength(path, offset, size);
+            for(int i = 0; i < length; i++){
+                push(pathNibble(path, offset, i));
+            }
+        }
+
+        String toKey(){
+            byte[] result = new byte[depth / 2];
+            for(int i = 0; i < result.length; i++){
+                result[i] = (byte) ((nibbles[2 * i] << 4) | nibbles[2 * i + 1] & 0x0F);
+            }
+            return new String(result);
         }
-        return nibbles;
     }
 
 }
@@ -0,0 +1,159 @@
+/*
+ *
+ *  The MIT License
+ *
+ *  Copyright 2019 ITON Solutions.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+
+package org.iton.jssi.pool.proof;
+
+import org.iton.jssi.ursa.rlp.DecodeException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded cache of decoded trie nodes of recently verified state roots of one pool.
+ * Nodes are recorded only after proof under the root was verified, so every cached node is hash checked.
+ * Published indexes are never modified, nodes of each record are added as new segment of the root,
+ * segments are merged once there are too many of them.
+ *
+ * @author ITON Solutions
+ */
+public class NodeCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(NodeCache.class);
+
+    public static final int MAX_ROOTS = 8;
+    public static final int MAX_NODES = 4096;
+    public static final int MAX_SEGMENTS = 8;
+
+    private static final NodeIndex[] EMPTY = new NodeIndex[0];
+
+    private final int maxRoots;
+    private final int maxNodes;
+
+    // access ordered, eldest root is evicted first
+    private final LinkedHashMap<ByteBuffer, NodeIndex[]> roots;
+
+    public NodeCache(){
+        this(MAX_ROOTS, MAX_NODES);
+    }
+
+    public NodeCache(int maxRoots, int maxNodes){
+        this.maxRoots = maxRoots;
+        this.maxNodes = maxNodes;
+        this.roots = new LinkedHashMap<ByteBuffer, NodeIndex[]>(maxRoots * 2, 0.75f, true){
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ByteBuffer, NodeIndex[]> eldest) {
+                return size() > NodeCache.this.maxRoots;
+            }
+        };
+    }
+
+    /**
+     * @return indexes of recently verified roots, segments of the given root first if present
+     */
+    public synchronized List<NodeIndex> lookup(byte[] root){
+        List<NodeIndex> result = new ArrayList<>();
+        NodeIndex[] segments = roots.get(ByteBuffer.wrap(root));
+        if(segments != null){
+            result.addAll(Arrays.asList(segments));
+        }
+        for(NodeIndex[] other : roots.values()){
+            if(other != segments){
+                result.addAll(Arrays.asList(other));
+            }
+        }
+        return result;
+    }
+
+    public static Node get(List<NodeIndex> indexes, byte[] hash) throws DecodeException {
+        for(NodeIndex index : indexes){
+            Node node = index.get(hash);
+            if(node != null){
+                return node;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Record nodes of proof verified against root, only nodes not cached under the root are added
+     */
+    public synchronized void record(byte[] root, List<Node> nodes) throws DecodeException {
+
+        ByteBuffer key = ByteBuffer.wrap(root.clone());
+        NodeIndex[] segments = roots.get(key);
+        if(segments == null){
+            segments = EMPTY;
+        }
+
+        List<NodeIndex> cached = Arrays.asList(segments);
+        NodeIndex segment = null;
+        for(Node node : nodes){
+            if(get(cached, node.hash()) == null){
+                if(segment == null){
+                    segment = new NodeIndex(nodes.size());
+                }
+                segment.put(node);
+            }
+        }
+        if(segment == null){
+            // every node is cached already, indexes of the root are kept as they are
+            return;
+        }
+
+        int size = segment.size();
+        for(NodeIndex index : segments){
+            size += index.size();
+        }
+        if(size > maxNodes){
+            LOG.debug(String.format("Node cache of root limit %d reached", maxNodes));
+            return;
+        }
+
+        NodeIndex[] result;
+        if(segments.length < MAX_SEGMENTS){
+            result = Arrays.copyOf(segments, segments.length + 1);
+            result[segments.length] = segment;
+        } else {
+            // merge is linear in cached nodes, it happens once per MAX_SEGMENTS records
+            NodeIndex merged = new NodeIndex(size);
+            for(NodeIndex index : segments){
+                index.copyTo(merged);
+            }
+            segment.copyTo(merged);
+            result = new NodeIndex[]{merged};
+        }
+        roots.put(key, result);
+    }
+
+    public synchronized void clear(){
+        roots.clear();
+    }
+}
@@ -26,42 +26,76 @@
 package org.iton.jssi.pool.proof;
 
 import org.iton.jssi.ursa.rlp.DecodeException;
-import org.iton.jssi.ursa.rlp.RLPItem;
-import org.iton.jssi.ursa.rlp.RLPList;
-import org.iton.jssi.ursa.util.Bytes;
+import org.iton.jssi.ursa.rlp.UnrecoverableDecodeException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
 
-import static org.iton.jssi.ursa.rlp.RLPDecoder.RLP_STRICT;
-
 public class NodeHelper {
 
     private static final Logger LOG = LoggerFactory.getLogger(NodeHelper.class);
 
+    /**
+     * Decode proof nodes, nodes already verified under recent roots are taken from cache if given
+     */
+    private static List<Node> decode(byte[] rlp, byte[] root, NodeCache cache) throws DecodeException {
+
+        RLPReader proof = new RLPReader(rlp).read(0);
+        if(!proof.isList()){
+            throw new UnrecoverableDecodeException("State proof is not RLP list of nodes");
+        }
+
+        RLPReader element = new RLPReader(rlp);
+        RLPNodeAdapter adapter = new RLPNodeAdapter();
+        List<NodeIndex> cached = cache == null ? Collections.<NodeIndex>emptyList() : cache.lookup(root);
+        List<Node> nodes = new ArrayList<>();
+
+        for (int position = proof.getOffset(); position < proof.getEnd(); position = element.getEnd()) {
+            element.read(position);
+            int length = element.getEnd() - position;
+            byte[] hash = Node.digest(rlp, position, length);
+            Node node = NodeCache.get(cached, hash);
+            if(node == null){
+                node = adapter.decode(rlp, position);
+                node.setEncoded(rlp, position, length, hash);
+            }
+            nodes.add(node);
+        }
+        return nodes;
+    }
+
     public static boolean verifyProof(byte[] rlp, byte[] root, byte[] key, String expected) {
+        return verifyProof(rlp, root, key, expected, null);
+    }
+
+    /**
+     * @param cache nodes of recently verified proofs of the pool, may be null
+     */
+    public static boolean verifyProof(byte[] rlp, byte[] root, byte[] key, String expected, NodeCache cache) {
 
         try {
-            RLPItem item = RLP_STRICT.collectAll(rlp).get(0);
-            RLPList list = (RLPList) item;
-            List<RLPItem> elements = list.elements(RLP_STRICT);
-            RLPNodeAdapter adapter = new RLPNodeAdapter();
-            List<Node> nodes = new ArrayList<>();
-            for (RLPItem element : elements) {
-                Node node = adapter.decode(element);
-                nodes.add(node);
-            }
+            List<Node> nodes = decode(rlp, root, cache);
 
-            Map<String, Node> trie = new HashMap<>();
+            NodeIndex trie = new NodeIndex(nodes.size());
             for (Node node : nodes) {
-                trie.put(node.getHash(), node);
+                trie.put(node);
             }
 
-            Node node = trie.get(Bytes.toHex(root));
+            Node node = trie.get(root);
+            if(node == null){
+                return false;
+            }
             String result = node.getStringValue(trie, key);
 
-            return result.equals(expected);
+            // expected null value proves absence of the key
+            if(Objects.equals(result, expected)){
+                if(cache != null){
+                    cache.record(root, nodes);
+                }
+                return true;
+            }
+            return false;
         } catch (DecodeException e){
             LOG.error(String.format("Verify exception %s", e.getMessage()));
             return false;
@@ -69,48 +103,255 @@ public class NodeHelper {
     }
 
     public static boolean verifyProofRange(byte[] rlp, byte[] root, String prefix, Long from, Long to, Map<String, String> range) throws DecodeException {
+        return verifyProofRange(rlp, root, prefix, from, to, range, null);
+    }
 
-        RLPItem item = RLP_STRICT.collectAll(rlp).get(0);
-        RLPList list = (RLPList) item;
-        List<RLPItem> elements = list.elements(RLP_STRICT);
-        RLPNodeAdapter adapter = new RLPNodeAdapter();
-        List<Node> nodes = new ArrayList<>();
-        for (RLPItem element : elements) {
-            Node node = adapter.decode(element);
-            nodes.add(node);
+    public static boolean verifyProofRange(byte[] rlp, byte[] root, String prefix, Long from, Long to, Map<String, String> range, NodeCache cache) throws DecodeException {
+
+        List<Node> nodes = decode(rlp, root, cache);
+
+        NodeIndex trie = new NodeIndex(nodes.size());
+        for (Node node : nodes) {
+            trie.put(node);
         }
 
-        Map<String, Node> trie = new HashMap<>();
+        Node node = trie.get(root);
+        if(node == null){
+            LOG.error("State proof does not contain root node");
+            return false;
+        }
+
+        RangeVisitor visitor = new RangeVisitor(prefix.getBytes(), from, to, range);
+        node.visitAll(trie, prefix.getBytes(), visitor);
+        boolean verified = visitor.isVerified();
+        if(verified){
+            if(cache != null){
+                cache.record(root, nodes);
+            }
+        }
+        return verified;
+    }
+
+    /**
+     * Verify several keys against one proof, trie is decoded once and all keys are resolved in one descent
+     *
+     * @param expected base64 encoded keys with expected values, null value expects absence of the key
+     * @return verification result per key
+     */
+    public static Map<String, Boolean> verifyProofMulti(byte[] rlp, byte[] root, Map<String, String> expected) throws DecodeException {
+        return verifyProofMulti(rlp, root, expected, null);
+    }
+
+    public static Map<String, Boolean> verifyProofMulti(byte[] rlp, byte[] root, Map<String, String> expected, NodeCache cache) throws DecodeException {
+
+        List<Node> nodes = decode(rlp, root, cache);
+
+        NodeIndex trie = new NodeIndex(nodes.size());
         for (Node node : nodes) {
-            trie.put(node.getHash(), node);
+            trie.put(node);
+        }
+
+        Map<String, Boolean> result = new HashMap<>();
+        Node node = trie.get(root);
+        if(node == null){
+            LOG.error("State proof does not contain root node");
+            for(String key : expected.keySet()){
+                result.put(key, false);
+            }
+            return result;
+        }
+
+        final List<String> names = new ArrayList<>(expected.keySet());
+        final byte[][] decoded = new byte[names.size()][];
+        Integer[] order = new Integer[names.size()];
+        for(int i = 0; i < order.length; i++){
+            decoded[i] = Base64.getDecoder().decode(names.get(i));
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer first, Integer second) {
+                return compareKeys(decoded[first], decoded[second]);
+            }
+        });
+
+        byte[][] keys = new byte[order.length][];
+        for(int i = 0; i < order.length; i++){
+            keys[i] = decoded[order[i]];
+        }
+
+        byte[][] values = new byte[keys.length][];
+        node.findAll(trie, keys, values);
+
+        boolean verified = true;
+        for(int i = 0; i < order.length; i++){
+            String name = names.get(order[i]);
+            String value = values[i] == null ? null : new String(values[i]);
+            boolean matched = Objects.equals(value, expected.get(name));
+            result.put(name, matched);
+            verified &= matched;
+        }
+        if(verified){
+            if(cache != null){
+                cache.record(root, nodes);
+            }
+        }
+        return result;
+    }
+
+    private static int compareKeys(byte[] first, byte[] second){
+        int length = Math.min(first.length, second.length);
+        for(int i = 0; i < length; i++){
+            int result = (first[i] & 0xFF) - (second[i] & 0xFF);
+            if(result != 0){
+                return result;
+            }
+        }
+        return first.length - second.length;
+    }
+
+    /**
+     * Compare values with numerical key suffix in [from, to) against expected range while walking the trie.
+     * Subtrees which suffix digits can not lead into range are skipped, walk stops on first mismatch.
+     */
+    static class RangeVisitor implements Node.Visitor {
+
+        private final byte[] prefix;
+        private final long from;
+        private final long to;
+        // decimal bounds for suffix comparison, null upper bound is open
+        private final String lower;
+        private final String upper;
+        private final Map<String, String> expected;
+        private int matched;
+        private boolean failed;
+
+        RangeVisitor(byte[] prefix, Long from, Long to, Map<String, String> expected){
+            this.prefix = prefix;
+            this.from = from == null ? Long.MIN_VALUE : from;
+            this.to = to == null ? Long.MAX_VALUE : to;
+            this.lower = Long.toString(this.from);
+            this.upper = to == null ? null : Long.toString(to);
+            this.expected = expected;
         }
 
-        Node node = trie.get(Bytes.toHex(root));
+        @Override
+        public boolean descend(Node.Prefix path) {
+            int start = 2 * prefix.length;
+            if(path.depth <= start){
+                return true;
+            }
+
+            long value = 0;
+            int digits = 0;
+            for(int i = start; i < path.depth; i += 2){
+                // ascii digits are 0x30 - 0x39
+                if(path.nibbles[i] != 0x03){
+                    return false;
+                }
+                if(i + 1 == path.depth){
+                    break;
+                }
+                int digit = path.nibbles[i + 1];
+                if(digit > 9){
+                    return false;
+                }
+                if(++digits > 18){
+                    // too long to bound, value check decides
+                    return true;
+                }
+                value = value * 10 + digit;
+            }
+            return digits == 0 || intersects(value);
+        }
 
-        Map<String, String> values = node.getAllValues(trie, prefix.getBytes());
-        if(values == null){
-            LOG.error("Some errors happened while collecting values from state proof");
+        /**
+         * @return true if some number starting with digits of value may lay in [from, to)
+         */
+        private boolean intersects(long value){
+            long low = value;
+            long high = value + 1;
+            while(low < to){
+                if(high > from){
+                    return true;
+                }
+                if(high > Long.MAX_VALUE / 10){
+                    return true;
+                }
+                low *= 10;
+                high *= 10;
+            }
+            return false;
         }
 
-        // Preparation of data for verification
-        // Fetch numerical suffixes
-        Map<String, String> result = new HashMap<>();
-        for(String key : values.keySet()){
-            if(key.startsWith(prefix)){
-                String suffix = key.substring(prefix.length());
-                Long index = Long.parseLong(suffix);
+        @Override
+        public boolean visit(Node.Prefix path, byte[] value) {
+
+            int start = 2 * prefix.length;
+            if(path.depth <= start || (path.depth & 1) == 1){
+                return true;
+            }
+            for(int i = 0; i < start; i++){
+                if(path.nibbles[i] != Node.nibble(prefix, i)){
+                    return true;
+                }
+            }
+
+            char[] suffix = new char[(path.depth - start) / 2];
+            for(int i = start, j = 0; i < path.depth; i += 2, j++){
+                int digit = path.nibbles[i + 1];
+                if(path.nibbles[i] != 0x03 || digit > 9){
+                    return true;
+                }
+                suffix[j] = (char) ('0' + digit);
+            }
+            if(compare(suffix, lower) < 0 || (upper != null && compare(suffix, upper) >= 0)){
+                return true;
+            }
+
+            matched++;
+            if(expected == null){
+                // any value in range is enough
+                return false;
+            }
 
-                to = to == null ? Long.MAX_VALUE : to;
-                from = from == null ? Long.MIN_VALUE : from;
+            String current = expected.get(path.toKey());
+            if(current == null || !current.equals(new String(value))){
+                failed = true;
+                return false;
+            }
+            return true;
+        }
 
-                if(index >= from && index < to){
-                    result.put(key, values.get(key));
+        /**
+         * Compare decimal suffix of any length with decimal bound, leading zeros of suffix are ignored
+         */
+        private static int compare(char[] suffix, String bound){
+            if(bound.charAt(0) == '-'){
+                return 1;
+            }
+            int offset = 0;
+            while(offset < suffix.length - 1 && suffix[offset] == '0'){
+                offset++;
+            }
+            int length = suffix.length - offset;
+            if(length != bound.length()){
+                return length - bound.length();
+            }
+            for(int i = 0; i < length; i++){
+                int result = suffix[offset + i] - bound.charAt(i);
+                if(result != 0){
+                    return result;
                 }
             }
+            return 0;
         }
-        if(range == null){
-            return !result.isEmpty();
+
+        boolean isVerified(){
+            if(expected == null){
+                return matched > 0;
+            }
+            return !failed && matched == expected.size();
         }
-        return result.equals(range);
     }
 }
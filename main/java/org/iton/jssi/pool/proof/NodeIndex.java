@@ -0,0 +1,155 @@
+/*
+ *
+ *  The MIT License
+ *
+ *  Copyright 2019 ITON Solutions.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+
+package org.iton.jssi.pool.proof;
+
+import org.iton.jssi.ursa.rlp.DecodeException;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing index of trie nodes keyed by 32 bytes node hash.
+ * First two longs of the hash are used as probe key, full hash is compared on match,
+ * so lookup by child hash does not require hex encoding.
+ *
+ * @author ITON Solutions
+ */
+public class NodeIndex {
+
+    private static final int HASH_SIZE = 32;
+
+    private long[] keys;
+    private Node[] nodes;
+    private int mask;
+    private int size;
+
+    public NodeIndex(int expected){
+        int capacity = Integer.highestOneBit(Math.max(expected, 4) * 2 - 1) << 1;
+        keys = new long[2 * capacity];
+        nodes = new Node[capacity];
+        mask = capacity - 1;
+    }
+
+    public void put(Node node) throws DecodeException {
+
+        if(2 * (size + 1) > nodes.length){
+            resize();
+        }
+
+        byte[] hash = node.hash();
+        long k0 = toLong(hash, 0);
+        long k1 = toLong(hash, 8);
+
+        int slot = slot(k0, k1);
+        while(nodes[slot] != null){
+            if(keys[2 * slot] == k0 && keys[2 * slot + 1] == k1 && Arrays.equals(nodes[slot].hash(), hash)){
+                nodes[slot] = node;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[2 * slot] = k0;
+        keys[2 * slot + 1] = k1;
+        nodes[slot] = node;
+        size++;
+    }
+
+    public Node get(byte[] hash) throws DecodeException {
+        return hash == null || hash.length != HASH_SIZE ? null : get(hash, 0);
+    }
+
+    /**
+     * @param buffer buffer holding 32 bytes hash at offset
+     */
+    public Node get(byte[] buffer, int offset) throws DecodeException {
+
+        if(buffer == null || offset < 0 || offset + HASH_SIZE > buffer.length){
+            return null;
+        }
+
+        long k0 = toLong(buffer, offset);
+        long k1 = toLong(buffer, offset + 8);
+
+        int slot = slot(k0, k1);
+        while(nodes[slot] != null){
+            if(keys[2 * slot] == k0 && keys[2 * slot + 1] == k1 && equals(nodes[slot].hash(), buffer, offset)){
+                return nodes[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    private static boolean equals(byte[] hash, byte[] buffer, int offset){
+        for(int i = 0; i < HASH_SIZE; i++){
+            if(hash[i] != buffer[offset + i]){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Put all nodes of this index into target, this index is left untouched
+     */
+    public void copyTo(NodeIndex target) throws DecodeException {
+        for(Node node : nodes){
+            if(node != null){
+                target.put(node);
+            }
+        }
+    }
+
+    public int size(){
+        return size;
+    }
+
+    private void resize() throws DecodeException {
+        Node[] old = nodes;
+        keys = new long[4 * old.length];
+        nodes = new Node[2 * old.length];
+        mask = nodes.length - 1;
+        size = 0;
+        for(Node node : old){
+            if(node != null){
+                put(node);
+            }
+        }
+    }
+
+    private int slot(long k0, long k1){
+        // hash bytes are uniformly distributed already, just fold them
+        long h = k0 ^ k1;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private static long toLong(byte[] bytes, int offset){
+        long result = 0;
+        for(int i = offset; i < offset + 8; i++){
+            result = (result << 8) | (bytes[i] & 0xFF);
+        }
+        return result;
+    }
+}
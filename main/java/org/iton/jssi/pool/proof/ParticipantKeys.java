@@ -0,0 +1,134 @@
+/*
+ *
+ *  The MIT License
+ *
+ *  Copyright 2019 ITON Solutions.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+
+package org.iton.jssi.pool.proof;
+
+import org.bitcoinj.core.Base58;
+import org.iton.jssi.ursa.bls.BLS;
+import org.iton.jssi.ursa.bls.Generator;
+import org.iton.jssi.ursa.bls.MultiSignature;
+import org.iton.jssi.ursa.bls.VerKey;
+import org.iton.jssi.ursa.pair.CryptoException;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * BLS verification keys of pool nodes resolved per participant set.
+ * Participants are mapped to bit set over sorted node aliases, key array of each set is built once
+ * and reused until node registry is reset after catchup.
+ * Only the key lookup is cached, the keys are still aggregated by ursa on every verification,
+ * BLS exposes verifyMultiSignature over the key array and no aggregated key to verify against.
+ * Instance is owned by one pool and also carries caches of proofs verified for that pool.
+ *
+ * @author ITON Solutions
+ */
+public class ParticipantKeys {
+
+    private static final VerKey[] EMPTY = new VerKey[0];
+
+    private Map<String, Integer> indexes = new HashMap<>();
+    private VerKey[] keys = EMPTY;
+    private final Map<BitSet, VerKey[]> cache = new HashMap<>();
+
+    // bumped on every reset, signatures verified under older key set are not reused
+    private long generation;
+
+    // trie nodes of proofs verified against recent state roots of the pool
+    public final NodeCache tries = new NodeCache();
+    // multi signatures verified under current key set of the pool
+    public final SignatureCache signatures = new SignatureCache();
+
+    public ParticipantKeys(){}
+
+    public ParticipantKeys(Map<String, VerKey> nodes){
+        reset(nodes);
+    }
+
+    /**
+     * Replace node registry, drops all resolved participant sets
+     */
+    public synchronized void reset(Map<String, VerKey> nodes){
+
+        List<String> aliases = new ArrayList<>(nodes.keySet());
+        Collections.sort(aliases);
+
+        indexes = new HashMap<>();
+        keys = new VerKey[aliases.size()];
+        for(int i = 0; i < keys.length; i++){
+            indexes.put(aliases.get(i), i);
+            keys[i] = nodes.get(aliases.get(i));
+        }
+        cache.clear();
+        generation++;
+        signatures.clear();
+    }
+
+    /**
+     * @return verification keys of known participants, unknown aliases are ignored
+     */
+    public synchronized VerKey[] get(List<String> participants){
+
+        BitSet set = new BitSet(keys.length);
+        for(String participant : participants){
+            Integer index = indexes.get(participant);
+            if(index != null){
+                set.set(index);
+            }
+        }
+
+        VerKey[] result = cache.get(set);
+        if(result == null){
+            result = new VerKey[set.cardinality()];
+            int i = 0;
+            for(int index = set.nextSetBit(0); index >= 0; index = set.nextSetBit(index + 1)){
+                result[i++] = keys[index];
+            }
+            cache.put(set, result);
+        }
+        return result;
+    }
+
+    public synchronized int size(){
+        return keys.length;
+    }
+
+    public synchronized long getGeneration(){
+        return generation;
+    }
+
+    /**
+     * Verify Base58 encoded multi signature of participants over signed value.
+     * Aggregation of participant keys is not skipped, it is done by BLS.verifyMultiSignature.
+     */
+    public boolean verify(String signature, byte[] value, VerKey[] participants, Generator generator) throws CryptoException {
+        MultiSignature multi_signature = new MultiSignature().fromBytes(Base58.decode(signature));
+        return BLS.verifyMultiSignature(multi_signature, value, participants, generator);
+    }
+}
@@ -48,44 +48,69 @@ public class RLPNodeAdapter implements RLPAdapter<Node> {
 
     @Override
     public Node decode(RLPItem item) throws DecodeException {
+        return decode(item.bytes(), 0);
+    }
+
+    /**
+     * Decode node encoded at position, node references slices of buffer instead of copies
+     */
+    public Node decode(byte[] buffer, int position) throws DecodeException {
+        RLPReader item = new RLPReader(buffer).read(position);
+        Node node = decodeNode(item);
+        node.setEncoded(buffer, item.start, item.end - item.start, null);
+        return node;
+    }
+
+    private Node decodeNode(RLPReader item) throws DecodeException {
+        byte[] buffer = item.buffer;
         if (item.isList()){
-            RLPList list = (RLPList) item;
-            List<RLPItem> elements = list.elements(RLP_STRICT);
-            switch(elements.size()){
-                case FULL_SIZE:{
-                    Node[] nodes = new Node[RADIX];
-
-                    for(int i = 0; i < RADIX; i ++){
-                        RLPItem element = elements.get(i);
-                        if(Arrays.equals(element.data(), new byte[]{0x00})){
-                            continue;
-                        }
-                        nodes[i] = decode(element);
-                    }
-                    byte[] value = elements.get(RADIX).data().length == 0 ? null :elements.get(RADIX).data();
-                    return new Full(nodes, value);
+            RLPReader element = new RLPReader(buffer);
+            int first = item.offset;
+            int second = element.read(first).end;
+            if(second >= item.end){
+                throw new UnrecoverableDecodeException("Decoding error");
+            }
+            int pathOffset = element.offset;
+            int pathLength = element.length;
+
+            if(element.read(second).end == item.end){
+                if(pathLength == 0){
+                    throw new UnrecoverableDecodeException("Decoding error");
                 }
-                case PAIR_SIZE:{
-                    byte[] path = elements.get(0).data();
-                    if((path[0] & Node.IS_LEAF_MASK) == Node.IS_LEAF_MASK){
-                        byte[] value = elements.get(1).data();
-                        return new Leaf(path, value);
-                    } else if((path[0] & Node.IS_LEAF_MASK) == 0x00){
-                        Node next = decode(elements.get(1));
-                        return new Extension(path, next);
-                    } else{
-                        throw new UnrecoverableDecodeException("Decoding error");
-                    }
+                byte flags = buffer[pathOffset];
+                if((flags & Node.IS_LEAF_MASK) == Node.IS_LEAF_MASK){
+                    return new Leaf(buffer, pathOffset, pathLength, buffer, element.offset, element.length);
+                } else if((flags & Node.IS_LEAF_MASK) == 0x00){
+                    Node next = decode(buffer, second);
+                    return new Extension(buffer, pathOffset, pathLength, next);
+                } else{
+                    throw new UnrecoverableDecodeException("Decoding error");
                 }
             }
+
+            Node[] nodes = new Node[RADIX];
+            int position = first;
+            for(int i = 0; i < RADIX; i ++){
+                if(position >= item.end){
+                    throw new UnrecoverableDecodeException("Decoding error");
+                }
+                element.read(position);
+                if(element.isList() || element.length != EMPTY_SIZE){
+                    nodes[i] = decode(buffer, position);
+                }
+                position = element.end;
+            }
+            if(position >= item.end || element.read(position).end != item.end){
+                throw new UnrecoverableDecodeException("Decoding error");
+            }
+            return element.length == 0 ? new Full(nodes, null) : new Full(nodes, buffer, element.offset, element.length);
         } else {
-            byte[] data = item.data();
-            switch(data.length){
+            switch(item.length){
                 case EMPTY_SIZE:{
                     return new Blank();
                 }
                 case HASH_SIZE:{
-                    return new Hash(data);
+                    return new Hash(buffer, item.offset);
                 }
             }
         }
@@ -111,27 +136,27 @@ public class RLPNodeAdapter implements RLPAdapter<Node> {
                 if(full.value == null){
                     list.add(RLPDecoder.RLP_STRICT.wrap(EMPTY_DATA));
                 } else {
-                    list.add(RLPDecoder.RLP_STRICT.wrap(RLPEncoder.encode(full.value)));
+                    list.add(RLPDecoder.RLP_STRICT.wrap(RLPEncoder.encode(slice(full.value, full.valueOffset, full.valueLength))));
                 }
                 return RLPEncoder.toList(list);
             }
             case EXTENSION:{ // TODO test this case
                 Extension extension = (Extension) node;
                 List<byte[]> list = new ArrayList<>();
-                list.add(extension.path);
+                list.add(slice(extension.path, extension.pathOffset, extension.pathLength));
                 list.add(encode(extension.next).data());
                 return RLPDecoder.RLP_STRICT.wrap(RLPEncoder.encodeAsList(list));
             }
             case LEAF:{
                 Leaf leaf = (Leaf) node;
                 List<byte[]> list = new ArrayList<>();
-                list.add(leaf.path);
-                list.add(leaf.value);
+                list.add(slice(leaf.path, leaf.pathOffset, leaf.pathLength));
+                list.add(slice(leaf.value, leaf.valueOffset, leaf.valueLength));
                 return RLPDecoder.RLP_STRICT.wrap(RLPEncoder.encodeAsList(list));
             }
             case HASH:{
                 Hash hash = (Hash) node;
-                return RLPDecoder.RLP_STRICT.wrap(RLPEncoder.encode(hash.hash));
+                return RLPDecoder.RLP_STRICT.wrap(RLPEncoder.encode(slice(hash.hash, hash.hashOffset, HASH_SIZE)));
             }
             case BLANK:{
                 return RLPDecoder.RLP_STRICT.wrap(EMPTY_DATA);
@@ -140,4 +165,11 @@ public class RLPNodeAdapter implements RLPAdapter<Node> {
                 return null;
         }
     }
+
+    private static byte[] slice(byte[] buffer, int offset, int length){
+        if(offset == 0 && length == buffer.length){
+            return buffer;
+        }
+        return Arrays.copyOfRange(buffer, offset, offset + length);
+    }
 }
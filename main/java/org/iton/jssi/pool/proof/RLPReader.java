@@ -0,0 +1,143 @@
+/*
+ *
+ *  The MIT License
+ *
+ *  Copyright 2019 ITON Solutions.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+
+package org.iton.jssi.pool.proof;
+
+import org.iton.jssi.ursa.rlp.UnrecoverableDecodeException;
+
+/**
+ * Cursor over RLP encoded buffer. Reading item at position sets its payload slice and end,
+ * nothing is copied out of the buffer.
+ *
+ * @author ITON Solutions
+ */
+public class RLPReader {
+
+    private static final int OFFSET_SHORT_STRING = 0x80;
+    private static final int OFFSET_LONG_STRING = 0xB7;
+    private static final int OFFSET_SHORT_LIST = 0xC0;
+    private static final int OFFSET_LONG_LIST = 0xF7;
+
+    final byte[] buffer;
+
+    // item read last
+    int start;
+    int offset;
+    int length;
+    int end;
+    boolean list;
+
+    public RLPReader(byte[] buffer){
+        this.buffer = buffer;
+    }
+
+    /**
+     * Read header of item at position
+     */
+    public RLPReader read(int position) throws UnrecoverableDecodeException {
+
+        if(position < 0 || position >= buffer.length){
+            throw new UnrecoverableDecodeException(String.format("RLP item out of buffer at %d", position));
+        }
+
+        int prefix = buffer[position] & 0xFF;
+        start = position;
+
+        if(prefix < OFFSET_SHORT_STRING){
+            list = false;
+            offset = position;
+            length = 1;
+        } else if(prefix <= OFFSET_LONG_STRING){
+            list = false;
+            offset = position + 1;
+            length = prefix - OFFSET_SHORT_STRING;
+        } else if(prefix < OFFSET_SHORT_LIST){
+            list = false;
+            readLength(position, prefix - OFFSET_LONG_STRING);
+        } else if(prefix <= OFFSET_LONG_LIST){
+            list = true;
+            offset = position + 1;
+            length = prefix - OFFSET_SHORT_LIST;
+        } else {
+            list = true;
+            readLength(position, prefix - OFFSET_LONG_LIST);
+        }
+
+        end = offset + length;
+        if(end > buffer.length){
+            throw new UnrecoverableDecodeException(String.format("RLP item at %d exceeds buffer", position));
+        }
+        return this;
+    }
+
+    private void readLength(int position, int size) throws UnrecoverableDecodeException {
+        if(size > 4 || position + size >= buffer.length){
+            throw new UnrecoverableDecodeException(String.format("Invalid RLP length at %d", position));
+        }
+        int result = 0;
+        for(int i = 1; i <= size; i++){
+            result = (result << 8) | (buffer[position + i] & 0xFF);
+        }
+        if(result < 0){
+            throw new UnrecoverableDecodeException(String.format("Invalid RLP length at %d", position));
+        }
+        offset = position + 1 + size;
+        length = result;
+    }
+
+    /**
+     * @return number of items in payload of list read last
+     */
+    public int count() throws UnrecoverableDecodeException {
+        int result = 0;
+        int limit = end;
+        RLPReader reader = new RLPReader(buffer);
+        for(int position = offset; position < limit; position = reader.end){
+            reader.read(position);
+            result++;
+        }
+        return result;
+    }
+
+    public boolean isList(){
+        return list;
+    }
+
+    public int getStart(){
+        return start;
+    }
+
+    public int getOffset(){
+        return offset;
+    }
+
+    public int getLength(){
+        return length;
+    }
+
+    public int getEnd(){
+        return end;
+    }
+}
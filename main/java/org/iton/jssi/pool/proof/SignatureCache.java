@@ -0,0 +1,111 @@
+/*
+ *
+ *  The MIT License
+ *
+ *  Copyright 2019 ITON Solutions.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+
+package org.iton.jssi.pool.proof;
+
+import org.iton.jssi.pool.util.Digests;
+import org.iton.jssi.pool.util.Utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded cache of successfully verified BLS multi signatures of one pool.
+ * Entry is keyed by generation of node key set, signature, sorted participants and SHA-256 digest
+ * of signed value and expires after time to live.
+ *
+ * @author ITON Solutions
+ */
+public class SignatureCache {
+
+    public static final int MAX_SIZE = 1024;
+    public static final long TTL = 60 * 1000;
+
+    private final int maxSize;
+    private final long ttl;
+
+    // insertion ordered, eldest entry expires first
+    private final LinkedHashMap<String, Long> entries;
+
+    public SignatureCache(){
+        this(MAX_SIZE, TTL);
+    }
+
+    public SignatureCache(int maxSize, long ttl){
+        this.maxSize = maxSize;
+        this.ttl = ttl;
+        this.entries = new LinkedHashMap<String, Long>(){
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > SignatureCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * @param generation generation of key set participants were resolved against
+     */
+    public static String key(long generation, String signature, List<String> participants, byte[] value){
+        List<String> sorted = new ArrayList<>(participants);
+        Collections.sort(sorted);
+
+        StringBuilder builder = new StringBuilder().append(generation).append('|').append(signature);
+        for(String participant : sorted){
+            builder.append('|').append(participant);
+        }
+        return builder.append('|').append(Utils.toHex(Digests.sha256(value))).toString();
+    }
+
+    public synchronized boolean contains(String key){
+        long now = new Date().getTime();
+        expire(now);
+        return entries.containsKey(key);
+    }
+
+    public synchronized void put(String key){
+        long now = new Date().getTime();
+        entries.remove(key);
+        entries.put(key, now + ttl);
+    }
+
+    public synchronized void clear(){
+        entries.clear();
+    }
+
+    private void expire(long now){
+        Iterator<Long> iterator = entries.values().iterator();
+        while(iterator.hasNext()){
+            if(iterator.next() > now){
+                break;
+            }
+            iterator.remove();
+        }
+    }
+}
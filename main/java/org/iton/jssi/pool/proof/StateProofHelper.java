@@ -25,28 +25,29 @@
 
 package org.iton.jssi.pool.proof;
 
-import com.fasterxml.jackson.core.JsonFactory;
-import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.bitcoinj.core.Base58;
+import org.iton.jssi.pool.PoolConstants;
 import org.iton.jssi.pool.parser.BuiltinParser;
+import org.iton.jssi.pool.parser.CustomParser;
+import org.iton.jssi.pool.util.MsgPack;
 import org.iton.jssi.pool.util.Utils;
-import org.iton.jssi.ursa.bls.BLS;
 import org.iton.jssi.ursa.bls.Generator;
-import org.iton.jssi.ursa.bls.MultiSignature;
 import org.iton.jssi.ursa.bls.VerKey;
 import org.iton.jssi.ursa.pair.CryptoException;
-import org.msgpack.jackson.dataformat.MessagePackFactory;
+import org.iton.jssi.ursa.rlp.DecodeException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -62,6 +63,8 @@ public class StateProofHelper {
     
     private static final Logger LOG = LoggerFactory.getLogger(StateProofHelper.class);
 
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
     public static StateProof[] parse_generic_reply_for_proof_checking(ObjectNode result, String message, byte[] sp_key) throws JsonProcessingException {
 
         if(!result.has("type")){
@@ -77,9 +80,8 @@ public class StateProofHelper {
             }
         }
 
-        // TODO Add plugable parser
-        
-        return new StateProof[0];
+        StateProof[] parsed = CustomParser.parse(result, type, message);
+        return parsed == null ? new StateProof[0] : parsed;
     }
     
     
@@ -88,6 +90,16 @@ public class StateProofHelper {
         JsonNode operation = message.get("operation");
         
         LOG.debug(String.format("Parse key from %s", type));
+        
+        if(type.equals(GET_TXN)){
+            // key of transaction in ledger is its sequence number
+            JsonNode data = operation.get("data");
+            if(data == null || !data.canConvertToLong()){
+                return null;
+            }
+            return Long.toString(data.asLong()).getBytes();
+        }
+        
         String key = "";
         if(type.equals(GET_ATTR )){
             
@@ -238,17 +250,157 @@ public class StateProofHelper {
     }
     
     public static boolean verify_parsed_sp(List<StateProof> parsed_sps, Map<String, VerKey> nodes, int threshold, Generator generator){
+        return verify_parsed_sp(parsed_sps, new ParticipantKeys(nodes), threshold, generator);
+    }
+    
+    /**
+     * Verify values of every parsed state proof against its trie and multi signature over trie root
+     * 
+     * @return true if all proofs are valid and each is signed by enough participants
+     */
+    public static boolean verify_parsed_sp(List<StateProof> parsed_sps, ParticipantKeys nodes, int threshold, Generator generator){
+        return verify_parsed_sp(parsed_sps, nodes, threshold, generator, false, null);
+    }
+    
+    /**
+     * Verify parsed state proofs and freshness of their signed states
+     * 
+     * @param timestamps optional requested [from, to] in seconds, see {@link #check_freshness(long, long[])}
+     * @return true if all proofs are valid, signed by enough participants and timestamp of each signed state is fresh
+     */
+    public static boolean verify_parsed_sp(List<StateProof> parsed_sps, ParticipantKeys nodes, int threshold, Generator generator, long[] timestamps){
+        return verify_parsed_sp(parsed_sps, nodes, threshold, generator, true, timestamps);
+    }
+    
+    private static boolean verify_parsed_sp(List<StateProof> parsed_sps, ParticipantKeys nodes, int threshold, Generator generator, boolean fresh, long[] timestamps){
+        
+        if(parsed_sps.isEmpty()){
+            return false;
+        }
         
         for(StateProof parsed_sp : parsed_sps){
-            if(!parsed_sp.multi_signature.get("value").get("state_root_hash").asText().equals(parsed_sp.root_hash)){
+            if(parsed_sp == null || parsed_sp.multi_signature == null){
+                return false;
+            }
+            
+            // transaction proof is signed by ledger root, state proof by state trie root
+            boolean merkle = isMerkle(parsed_sp.kvs_to_verify);
+            String root = merkle ? "txn_root_hash" : "state_root_hash";
+            
+            JsonNode signed = parsed_sp.multi_signature.get("value");
+            if(signed == null || !signed.has(root) || !signed.get(root).asText().equals(parsed_sp.root_hash)){
+                LOG.debug("State proof root hash does not match signed state");
+                return false;
+            }
+            
+            try {
+                // audit path of transaction proof is JSON array, trie nodes are base64 encoded RLP
+                byte[] proof_nodes = merkle ? parsed_sp.proof_nodes.getBytes() : Base64.getDecoder().decode(parsed_sp.proof_nodes);
+                byte[] root_hash = Base58.decode(parsed_sp.root_hash);
+                
+                if(!verify_kvs(parsed_sp.kvs_to_verify, proof_nodes, root_hash, nodes.tries)){
+                    LOG.debug("State proof values are not verified by trie");
+                    return false;
+                }
+            } catch (IllegalArgumentException | DecodeException | IOException e) {
+                LOG.error(String.format("Invalid state proof %s", e.getMessage()));
+                return false;
+            }
+            
+            // proofs against different roots carry own signatures, equal ones are verified once by cache
+            SignedState state = parse_reply_for_proof_signature_checking((ObjectNode) parsed_sp.multi_signature);
+            if(state == null || !verify_proof_signature(state.signature, state.participants, state.value, nodes, threshold, generator)){
+                return false;
+            }
+            
+            // timestamp is trusted only as part of verified signed state
+            if(fresh && !check_freshness(signed.path("timestamp").asLong(0), timestamps)){
+                LOG.debug("Signed state of state proof is not fresh");
                 return false;
             }
         }
+        return true;
+    }
+    
+    private static boolean isMerkle(StateProofType<?> kvs_to_verify){
+        Object type = kvs_to_verify == null ? null : kvs_to_verify.getType();
+        if(type instanceof StateProofType.Simple){
+            StateProofDataType<?> verification = ((StateProofType.Simple<?>) type).verificationType;
+            return verification != null && verification.getType() instanceof StateProofDataType.Merkle;
+        }
+        return false;
+    }
+    
+    private static boolean verify_kvs(StateProofType<?> kvs_to_verify, byte[] proof_nodes, byte[] root_hash, NodeCache cache) throws DecodeException, IOException {
+        
+        Object type = kvs_to_verify == null ? null : kvs_to_verify.getType();
+        if(!(type instanceof StateProofType.Simple)){
+            LOG.warn(String.format("Unsupported state proof type %s", type));
+            return false;
+        }
+        
+        StateProofType.Simple<?> simple = (StateProofType.Simple<?>) type;
+        Object verification = simple.verificationType == null ? null : simple.verificationType.getType();
+        Map<String, String> kvs = simple.keyValues;
+        
+        if(verification instanceof StateProofDataType.Simple){
+            if(kvs.size() == 1){
+                Map.Entry<String, String> entry = kvs.entrySet().iterator().next();
+                return NodeHelper.verifyProof(proof_nodes, root_hash, Base64.getDecoder().decode(entry.getKey()), entry.getValue(), cache);
+            }
+            // all keys are resolved in single pass over the proof trie
+            Map<String, Boolean> result = NodeHelper.verifyProofMulti(proof_nodes, root_hash, kvs, cache);
+            for(Map.Entry<String, Boolean> entry : result.entrySet()){
+                if(!entry.getValue()){
+                    LOG.debug(String.format("State proof does not verify key %s", entry.getKey()));
+                    return false;
+                }
+            }
+            return !result.isEmpty();
+        } else if(verification instanceof StateProofDataType.Suffix){
+            StateProofDataType.Suffix suffix = (StateProofDataType.Suffix) verification;
+            Map<String, String> range = new HashMap<>();
+            for(Map.Entry<String, String> entry : kvs.entrySet()){
+                range.put(new String(Base64.getDecoder().decode(entry.getKey())), entry.getValue());
+            }
+            return NodeHelper.verifyProofRange(proof_nodes, root_hash, suffix.prefix, suffix.from, suffix.next, range, cache);
+        } else if(verification instanceof StateProofDataType.Merkle){
+            StateProofDataType.Merkle merkle = (StateProofDataType.Merkle) verification;
+            
+            List<byte[]> path = new ArrayList<>();
+            for(JsonNode node : MAPPER.readTree(proof_nodes)){
+                path.add(Base58.decode(node.asText()));
+            }
+            
+            for(Map.Entry<String, String> entry : kvs.entrySet()){
+                if(entry.getValue() == null){
+                    return false;
+                }
+                long seqNo = Long.parseLong(new String(Base64.getDecoder().decode(entry.getKey())));
+                // ledger leaf is MessagePack of whole transaction, keys sorted as by ledger serializer
+                byte[] leaf = MsgPack.encode(MAPPER.readTree(entry.getValue()));
+                if(!AuditPath.verify(leaf, seqNo - 1, merkle.size, path, root_hash)){
+                    return false;
+                }
+            }
+            return true;
+        }
         
+        LOG.warn(String.format("Unsupported state proof verification type %s", verification));
         return false;
     }
     
-    public static void parse_reply_for_proof_signature_checking(ObjectNode message){
+    /**
+     * @param last timestamp of signed state in seconds
+     * @param timestamps optional requested [from, to] in seconds, state should be fresh against to or now
+     */
+    public static boolean check_freshness(long last, long[] timestamps){
+        long now = new Date().getTime() / 1000;
+        long reference = timestamps != null && timestamps.length > 1 && timestamps[1] > 0 ? timestamps[1] : now;
+        return last > 0 && reference - last <= PoolConstants.POOL_FRESHNESS_THRESHOLD;
+    }
+    
+    public static SignedState parse_reply_for_proof_signature_checking(ObjectNode message){
         String signature = message.get("signature").asText();
         ArrayNode array = (ArrayNode) message.get("participants");
         
@@ -256,40 +408,44 @@ public class StateProofHelper {
         for(JsonNode node : array){
             participants.add(node.asText());
         }
-       
-        ByteArrayOutputStream bos = new ByteArrayOutputStream();
-
+        
         try {
-            // read json
-            ObjectMapper mapper = new ObjectMapper(new JsonFactory());
-            JsonNode node = mapper.readTree(message.get("value").toString());
-            // write message pack
-            MessagePackFactory factory = new MessagePackFactory();
-            JsonGenerator generator = factory.createGenerator(bos);
-            mapper.writeTree(generator, node);
+            // signed value is encoded straight from the tree, keys in canonical order
+            byte[] value = MsgPack.encode(message.get("value"));
+            return new SignedState(signature, participants, value);
         } catch (IOException e) {
-            LOG.error("Exception converting message pack to JSON", e);
+            LOG.error("Exception converting JSON to message pack", e);
+            return null;
         }
-        
-        byte[] value = bos.toByteArray();
     }
     
     public static boolean verify_proof_signature(String signature, List<String> participants, byte[] value, Map<String, VerKey> nodes, int threshold, Generator generator){
-        
-        List<VerKey> ver_keys = new ArrayList<>();
-        
-        for(String node : nodes.keySet()){
-            if(participants.contains(node));
-            ver_keys.add(nodes.get(node));
+        return verify_proof_signature(signature, participants, value, new ParticipantKeys(nodes), threshold, generator);
+    }
+
+    public static boolean verify_proof_signature(String signature, List<String> participants, byte[] value, ParticipantKeys nodes, int threshold, Generator generator){
+
+        VerKey[] ver_keys;
+        String key;
+        synchronized (nodes) {
+            // keys, their count and generation are taken from the same key set
+            ver_keys = nodes.get(participants);
+            if(ver_keys.length < nodes.size() - threshold){
+                return false;
+            }
+            key = SignatureCache.key(nodes.getGeneration(), signature, participants, value);
         }
-        
-        if(ver_keys.size() < nodes.size() - threshold){
-            return false;
+
+        if(nodes.signatures.contains(key)){
+            return true;
         }
         
         try {
-            MultiSignature multi_signature = new MultiSignature().fromBytes(Base58.decode(signature));
-            return BLS.verifyMultiSignature(multi_signature, value, ver_keys.toArray(new VerKey[ver_keys.size()]), generator);
+            boolean verified = nodes.verify(signature, value, ver_keys, generator);
+            if(verified){
+                nodes.signatures.put(key);
+            }
+            return verified;
         } catch (CryptoException e) {
             return false;
         }
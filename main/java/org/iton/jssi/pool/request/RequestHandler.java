@@ -39,6 +39,8 @@ import org.iton.jssi.pool.request.state.Start;
 import org.iton.jssi.pool.event.IPoolEvent;
 import org.iton.jssi.ursa.bls.VerKey;
 import org.iton.jssi.pool.network.INetworkHandler;
+import org.iton.jssi.pool.proof.ParticipantKeys;
+import org.iton.jssi.pool.VerificationHandler;
 import org.iton.jssi.ursa.bls.Generator;
 import org.iton.jssi.ursa.pair.CryptoException;
 import org.slf4j.Logger;
@@ -69,6 +71,8 @@ public class RequestHandler implements IRequestHandler {
     
     public int[] cmdIds;
     public Map<String, VerKey> verkeys = new HashMap<>();
+    public ParticipantKeys keys;
+    public VerificationHandler verifier;
     public Generator generator;
     private String name;
     public long timeout;
@@ -79,6 +83,8 @@ public class RequestHandler implements IRequestHandler {
             int threshold,
             int[] cmdIds,
             Map<String, VerKey> verkeys,
+            ParticipantKeys keys,
+            VerificationHandler verifier,
             String name,
             long timeout,
             long extended) throws CryptoException{
@@ -87,6 +93,8 @@ public class RequestHandler implements IRequestHandler {
         this.network = network;
         this.cmdIds = cmdIds;
         this.verkeys = verkeys;
+        this.keys = keys;
+        this.verifier = verifier;
         this.generator = new Generator().fromBytes(Base58.decode("3LHpUjiyFC2q2hD7MnwwNmVXiuaFbQx2XkAFJWzswCjgN1utjsCeLzHsKk1nJvFEaS4fcrUmVAkdhtPCYbrVyATZcmzwJReTcJqwqBCPTmTQ9uWPwz6rEncKb2pYYYFcdHa8N17HzVyTqKfgPi4X9pMetfT3A5xCHq54R2pDNYWVLDX"));
         this.name = name;
         this.timeout = timeout;
@@ -127,7 +135,8 @@ public class RequestHandler implements IRequestHandler {
     public ObjectNode removeProof(ObjectNode result) {
         
         result.remove("state_proof");
-        if (result.has("data")) {
+        // data of built-in replies may be JSON encoded string
+        if (result.path("data").isObject()) {
             ((ObjectNode)result.get("data")).remove("stateProofFrom");
         }
         return result;
@@ -137,24 +146,25 @@ public class RequestHandler implements IRequestHandler {
         try {
             ObjectMapper mapper = new ObjectMapper();
             JsonNode data = mapper.readTree(message);
-            String op = data.get("op").asText();
+            String op = data.path("op").asText();
             if(op.equals(IRequestEvent.Event.REJECT.name()) || op.equals(IRequestEvent.Event.REQNACK.name())){
                 return 0L;
             }
 
-            JsonNode result = data.get("result");
+            // unsigned informative timestamp, replies without one are reported as 0
+            JsonNode result = data.path("result");
             
-            if(result.get("ver").asInt() != 1){
+            if(result.path("ver").asInt() != 1){
                 return 0L;
             }
             
-            long timestamp = result.get("multiSignature")
-                    .get("signedState")
-                    .get("stateMetadata")
-                    .get("timestamp").asLong();
+            long timestamp = result.path("multiSignature")
+                    .path("signedState")
+                    .path("stateMetadata")
+                    .path("timestamp").asLong(0L);
             
             return timestamp;
-        } catch (JsonProcessingException e) {
+        } catch (IOException e) {
             return 0L;
         }
     }
@@ -51,7 +51,7 @@ public class CustomFullRequest implements IRequestEvent {
     public void handleRequest(RequestHandler request) {
         IRequestState current = request.state;
         
-        long local_timeout = timeout == null ? timeout : request.extended;
+        long local_timeout = timeout != null ? timeout : request.extended;
         boolean is_known_nodes = false;
 
         for (String node : nodes) {
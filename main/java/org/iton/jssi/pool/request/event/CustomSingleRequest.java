@@ -59,7 +59,7 @@ public class CustomSingleRequest implements IRequestEvent {
         LOG.debug(String.format("Send resend: %s reqId %s", message, reqId));
         request.network.handleEvent(new Resend(reqId, request.timeout));
 
-        request.state = new Single(sp_key, timestamps);
+        request.state = new Single(reqId, sp_key, timestamps);
         request.event = null;
         LOG.debug(String.format("Event %s (%s -> %s)", getEvent(), current.getState(), request.state.getState()));
     }
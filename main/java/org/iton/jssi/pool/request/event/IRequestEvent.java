@@ -50,7 +50,8 @@ public interface IRequestEvent {
         TIMEOUT,
         TERMINATE,
         CONSISTENCY_PROOF,
-        PING
+        PING,
+        VERIFIED
     }
     
     public Event getEvent();
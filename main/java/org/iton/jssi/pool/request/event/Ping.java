@@ -24,14 +24,15 @@
 
 package org.iton.jssi.pool.request.event;
 
+import org.iton.jssi.pool.PoolConstants;
 import org.iton.jssi.pool.request.RequestHandler;
-import org.iton.jssi.pool.request.state.Consensus;
-import org.iton.jssi.pool.request.state.Finish;
 import org.iton.jssi.pool.request.state.IRequestState;
 
 /**
  *
  * @author ITON Solutions
+ * 
+ * Keep-alive probe of node sessions, does not change request state
  */
 public class Ping implements IRequestEvent{
 
@@ -43,12 +44,13 @@ public class Ping implements IRequestEvent{
 
     @Override
     public String getMessage() {
-        throw new UnsupportedOperationException("Not supported yet.");
+        return PoolConstants.PING;
     }
 
     @Override
     public void handleRequest(RequestHandler request) {
         IRequestState current = request.state;
+        request.network.handleEvent(new org.iton.jssi.pool.network.event.Ping());
         LOG.debug(String.format("Event %s (%s -> %s)", getEvent(), current.getState(), request.state.getState()));
     }
 
@@ -25,12 +25,15 @@
 package org.iton.jssi.pool.request.event;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.Callable;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.iton.jssi.pool.network.event.CleanTimeout;
+import org.iton.jssi.pool.proof.ParticipantKeys;
 import org.iton.jssi.pool.proof.StateProof;
 import org.iton.jssi.pool.proof.StateProofHelper;
 import org.iton.jssi.pool.request.RequestHandler;
@@ -38,7 +41,7 @@ import org.iton.jssi.pool.request.state.Consensus;
 import org.iton.jssi.pool.request.state.Finish;
 import org.iton.jssi.pool.request.state.IRequestState;
 import org.iton.jssi.pool.request.state.Single;
-import org.iton.jssi.ursa.bls.VerKey;
+import org.iton.jssi.ursa.bls.Generator;
 
 /**
  *
@@ -137,7 +140,25 @@ public class Reply implements IRequestEvent {
                 list.add(new Single.NodeResponse(message, alias, last));
                 int count = list.size();
 
-                if(count > request.threshold || checkStateProof(result, request.threshold, request.verkeys, message, state.sp_key, state.timestamps, last)){
+                if(count > request.threshold){
+                    request.network.handleEvent(new CleanTimeout(reqId, null));
+                    request.state = new Finish();
+                    request.event = null;
+                } else if(request.verifier != null){
+                    // proof is checked outside of PoolThread, result comes back as Verified event
+                    final int threshold = request.threshold;
+                    final ParticipantKeys keys = request.keys;
+                    final Generator generator = request.generator;
+                    final byte[] sp_key = state.sp_key;
+                    final long[] timestamps = state.timestamps;
+                    request.verifier.submit(reqId, alias, new Callable<Boolean>() {
+                        @Override
+                        public Boolean call() throws Exception {
+                            return checkStateProof(threshold, keys, generator, message, sp_key, timestamps);
+                        }
+                    });
+                    request.event = null;
+                } else if(checkStateProof(request.threshold, request.keys, request.generator, message, state.sp_key, state.timestamps)){
                     request.network.handleEvent(new CleanTimeout(reqId, null));
                     request.state = new Finish();
                     request.event = null;
@@ -157,15 +178,22 @@ public class Reply implements IRequestEvent {
         LOG.debug(String.format("Event %s (%s -> %s)", getEvent(), current.getState(), request.state.getState()));
     }
 
-    private boolean checkStateProof(ObjectNode result,
-                                    int threshold,
-                                    Map<String, VerKey> verkeys,
-                                    String message,
-                                    byte[] sp_key,
-                                    long[] timestamps,
-                                    long last) throws JsonProcessingException {
+    /**
+     * Single reply is trusted if its state proof is verified by trie and multi signature and signed state is fresh,
+     * freshness is checked against timestamp of verified signed state only
+     */
+    private static boolean checkStateProof(int threshold,
+                                           ParticipantKeys keys,
+                                           Generator generator,
+                                           String message,
+                                           byte[] sp_key,
+                                           long[] timestamps) throws JsonProcessingException {
+        // reply result is parsed again, the one kept in request state has proof removed
+        ObjectNode result = (ObjectNode) new ObjectMapper().readTree(message).get("result");
         StateProof[] parsed = StateProofHelper.parse_generic_reply_for_proof_checking(result, message, sp_key);
-        return true; //StateProof.verify_parsed_sp(parsed, verkeys, generator);
+        if(parsed == null || parsed.length == 0){
+            return false;
+        }
+        return StateProofHelper.verify_parsed_sp(Arrays.asList(parsed), keys, threshold, generator, timestamps);
     }
-
 }
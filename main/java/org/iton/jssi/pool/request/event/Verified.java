@@ -0,0 +1,91 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 ITON Solutions.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.iton.jssi.pool.request.event;
+
+import org.iton.jssi.pool.network.event.CleanTimeout;
+import org.iton.jssi.pool.request.RequestHandler;
+import org.iton.jssi.pool.request.state.Finish;
+import org.iton.jssi.pool.request.state.IRequestState;
+import org.iton.jssi.pool.request.state.Single;
+
+/**
+ *
+ * @author ITON Solutions
+ * 
+ * State proof of single reply verified outside of PoolThread
+ */
+public class Verified implements IRequestEvent{
+    
+    public String reqId;
+    public String alias;
+    public boolean verified;
+    
+    public Verified(String reqId, String alias, boolean verified){
+        this.reqId = reqId;
+        this.alias = alias;
+        this.verified = verified;
+    }
+
+    @Override
+    public Event getEvent() {
+        return Event.VERIFIED;
+    }
+
+    @Override
+    public String getMessage() {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    @Override
+    public void handleRequest(RequestHandler request) {
+        IRequestState current = request.state;
+        
+        switch (current.getState()) {
+            case SINGLE: {
+                Single state = (Single) current;
+                
+                if(!reqId.equals(state.reqId)){
+                    // verification result of another request
+                    LOG.debug(String.format("Drop verification of reqId %s in request %s", reqId, state.reqId));
+                    request.event = null;
+                    break;
+                }
+                
+                if(verified){
+                    request.network.handleEvent(new CleanTimeout(reqId, null));
+                    request.state = new Finish();
+                } else {
+                    request.state = state.tryToContinue(request.network, reqId, alias, request.cmdIds, request.verkeys.size(), request.timeout);
+                }
+                request.event = null;
+                break;
+            }
+            default:{
+                // request finished before verification completed
+                request.event = null;
+            }
+        }
+        LOG.debug(String.format("Event %s (%s -> %s)", getEvent(), current.getState(), request.state.getState()));
+    }
+}
@@ -47,20 +47,23 @@ public class Single implements IRequestState {
     public Map<Key, List<NodeResponse>> replies = new HashMap<>();
     public List<String> timeouts = new ArrayList<>();
     
+    public String reqId;
     public byte[] sp_key;     // optional expected key for State Proof in Reply,
     public long[] timestamps; // optional
     
   
-    public Single(byte[] sp_key, long[] timestamps){
+    public Single(String reqId, byte[] sp_key, long[] timestamps){
+        this.reqId = reqId;
         this.sp_key = sp_key;
         this.timestamps = timestamps;
     }
     
-    public Single(Map<Key, List<NodeResponse>> replies, List<String> denied, List<String> timeouts, byte[] sp_key, long[] timestamps){
+    public Single(Map<Key, List<NodeResponse>> replies, List<String> denied, List<String> timeouts, String reqId, byte[] sp_key, long[] timestamps){
         this.replies = replies;
         this.denied = denied;
         this.timeouts = timeouts;
         
+        this.reqId = reqId;
         this.sp_key = sp_key;
         this.timestamps = timestamps;
     }
@@ -0,0 +1,109 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 ITON Solutions.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.iton.jssi.pool.util;
+
+import org.spongycastle.jcajce.provider.digest.SHA3;
+
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ *
+ * @author ITON Solutions
+ * 
+ * Thread confined SHA-256 and SHA3-256 instances, created once per thread and reset before every use
+ */
+public class Digests {
+
+    public static final int HASH_SIZE = 32;
+
+    private static final ThreadLocal<MessageDigest> SHA256 = new ThreadLocal<MessageDigest>(){
+        @Override
+        protected MessageDigest initialValue() {
+            try {
+                return MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    };
+
+    private static final ThreadLocal<MessageDigest> SHA3_256 = new ThreadLocal<MessageDigest>(){
+        @Override
+        protected MessageDigest initialValue() {
+            return new SHA3.Digest256();
+        }
+    };
+
+    /**
+     * @return SHA-256 instance of current thread, reset
+     */
+    public static MessageDigest sha256(){
+        MessageDigest digest = SHA256.get();
+        digest.reset();
+        return digest;
+    }
+
+    /**
+     * @return SHA3-256 instance of current thread, reset
+     */
+    public static MessageDigest sha3(){
+        MessageDigest digest = SHA3_256.get();
+        digest.reset();
+        return digest;
+    }
+
+    public static byte[] sha256(byte[] bytes){
+        return sha256(bytes, 0, bytes.length);
+    }
+
+    public static byte[] sha256(byte[] buffer, int offset, int length){
+        MessageDigest digest = sha256();
+        digest.update(buffer, offset, length);
+        return digest.digest();
+    }
+
+    public static byte[] sha3(byte[] bytes){
+        return sha3(bytes, 0, bytes.length);
+    }
+
+    public static byte[] sha3(byte[] buffer, int offset, int length){
+        MessageDigest digest = sha3();
+        digest.update(buffer, offset, length);
+        return digest.digest();
+    }
+
+    /**
+     * Finish digest into provided buffer
+     */
+    public static void digest(MessageDigest digest, byte[] out, int offset){
+        try {
+            digest.digest(out, offset, HASH_SIZE);
+        } catch (DigestException e) {
+            digest.reset();
+            throw new IllegalArgumentException(e);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 ITON Solutions.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.iton.jssi.pool.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.msgpack.core.MessageBufferPacker;
+import org.msgpack.core.MessagePack;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ *
+ * @author ITON Solutions
+ * 
+ * Canonical MessagePack encoding of JSON tree in single pass, object keys are written in sorted order
+ */
+public class MsgPack {
+
+    private static final ThreadLocal<MessageBufferPacker> PACKER = new ThreadLocal<MessageBufferPacker>(){
+        @Override
+        protected MessageBufferPacker initialValue() {
+            return MessagePack.newDefaultBufferPacker();
+        }
+    };
+
+    public static byte[] encode(JsonNode node) throws IOException {
+        MessageBufferPacker packer = PACKER.get();
+        // buffer is kept by the thread and reused by the next call
+        packer.clear();
+        pack(packer, node);
+        packer.flush();
+        return packer.toByteArray();
+    }
+
+    private static void pack(MessageBufferPacker packer, JsonNode node) throws IOException {
+        switch (node.getNodeType()) {
+            case OBJECT: {
+                List<String> names = new ArrayList<>(node.size());
+                Iterator<String> iterator = node.fieldNames();
+                while (iterator.hasNext()) {
+                    names.add(iterator.next());
+                }
+                Collections.sort(names);
+
+                packer.packMapHeader(names.size());
+                for (String name : names) {
+                    packer.packString(name);
+                    pack(packer, node.get(name));
+                }
+                break;
+            }
+            case ARRAY: {
+                packer.packArrayHeader(node.size());
+                for (JsonNode element : node) {
+                    pack(packer, element);
+                }
+                break;
+            }
+            case STRING: {
+                packer.packString(node.textValue());
+                break;
+            }
+            case NUMBER: {
+                if (node.isIntegralNumber()) {
+                    if (node.canConvertToLong()) {
+                        packer.packLong(node.longValue());
+                    } else {
+                        packer.packBigInteger(node.bigIntegerValue());
+                    }
+                } else if (node.isFloat()) {
+                    packer.packFloat(node.floatValue());
+                } else {
+                    packer.packDouble(node.doubleValue());
+                }
+                break;
+            }
+            case BOOLEAN: {
+                packer.packBoolean(node.booleanValue());
+                break;
+            }
+            case BINARY: {
+                byte[] data = node.binaryValue();
+                packer.packBinaryHeader(data.length);
+                packer.writePayload(data);
+                break;
+            }
+            case NULL:
+            case MISSING:
+            default: {
+                packer.packNil();
+            }
+        }
+    }
+}
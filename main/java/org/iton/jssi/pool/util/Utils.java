@@ -25,8 +25,6 @@ package org.iton.jssi.pool.util;
 
 import org.spongycastle.util.encoders.Hex;
 
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 
 /**
  *
@@ -39,12 +37,7 @@ public class Utils {
     }
 
     public static byte[] hash256(byte[] bytes) {
-        try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            return digest.digest(bytes);
-        } catch (NoSuchAlgorithmException e) {
-            return new byte[]{};
-        }
+        return Digests.sha256(bytes);
     }
 
     /**
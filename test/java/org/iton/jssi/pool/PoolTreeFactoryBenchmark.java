@@ -0,0 +1,132 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 ITON Solutions.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.iton.jssi.pool;
+
+import org.iton.jssi.ledger.merkle.Leaf;
+import org.iton.jssi.ledger.merkle.MerkleTree;
+import org.iton.jssi.pool.util.Digests;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pool ledger built from genesis transactions: conversion to MessagePack, hashing of leaves
+ * with digest instance created for every hash against thread confined instance of Digests,
+ * and Merkle tree build of ledger module.
+ *
+ * @author ITON Solutions
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class PoolTreeFactoryBenchmark {
+
+    private static final String GENESIS = "{\"reqSignature\":{},\"txn\":{\"data\":{\"data\":{\"alias\":\"Node%1$d\",\"blskey\":\"4N8aUNHSgjQVgkpm8nhNEfDf6txHznoYREg9kirmJrkivgL4oSEimFF6nsQ6M41QvhM2Z33nves5vfSn9n1UwNFJBYtWVnHYMATn76vLuL3zU88KyeAYcHfsih3He6UHcXDxcaecHVz6jhCYz1P2UZn2bDVruL5wXpehgBfBaLKm3Ba\",\"blskey_pop\":\"RahHYiCvoNCtPTrVtP7nMC5eTYrsUA8WjXbdhNc8debh1agE9bGiJxWBXYNFbnJXoXhWFMvyqhqhRoq737YQemH5ik9oL7R4NTTCz2LEZhkgLJzB3QRQqJyBNyv7acbdHrAT8nQ9UkLbaVL9NBpnWXBTw4LEMePaSHEw66RzPNdAX1\",\"client_ip\":\"10.0.0.%1$d\",\"client_port\":9702,\"node_ip\":\"10.0.0.%1$d\",\"node_port\":9701,\"services\":[\"VALIDATOR\"]},\"dest\":\"Gw6pDLhcBcoQesN72qfotTgFa7cbuqZpkX3Xo6pLhPhv\"},\"metadata\":{\"from\":\"Th7MpTaRZVRYnPiabds81Y\"},\"type\":\"0\"},\"txnMetadata\":{\"seqNo\":%1$d,\"txnId\":\"fea82e10e894419fe2bea7d96296a6d46f50f93f9eeda954ec461b2ed2950b62\"},\"ver\":\"1\"}";
+
+    // transactions in genesis file
+    @Param({"4", "25"})
+    public int size;
+
+    private String[] lines;
+    private List<Leaf> leaves;
+    private final byte[] hash = new byte[Digests.HASH_SIZE];
+
+    @Setup
+    public void setUp() throws IOException {
+        lines = new String[size];
+        leaves = new ArrayList<>(size);
+        for(int i = 0; i < size; i++){
+            lines[i] = String.format(GENESIS, i + 1);
+            leaves.add(new Leaf(PoolTreeFactory.fromJson(lines[i])));
+        }
+    }
+
+    @Benchmark
+    public int fromJson() throws IOException {
+        int length = 0;
+        for(String line : lines){
+            length += PoolTreeFactory.fromJson(line).length;
+        }
+        return length;
+    }
+
+    /**
+     * RFC 6962 leaf hash of every transaction, digest instance created for every leaf
+     */
+    @Benchmark
+    public void leafHashInstance(Blackhole blackhole) throws NoSuchAlgorithmException {
+        for(Leaf leaf : leaves){
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((byte) 0x00);
+            digest.update(leaf.data);
+            blackhole.consume(digest.digest());
+        }
+    }
+
+    /**
+     * RFC 6962 leaf hash of every transaction into same buffer, thread confined digest
+     */
+    @Benchmark
+    public byte[] leafHashDigests(){
+        for(Leaf leaf : leaves){
+            MessageDigest digest = Digests.sha256();
+            digest.update((byte) 0x00);
+            digest.update(leaf.data);
+            Digests.digest(digest, hash, 0);
+        }
+        return hash;
+    }
+
+    @Benchmark
+    public MerkleTree build() throws NoSuchAlgorithmException {
+        return new MerkleTree(leaves).build();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(PoolTreeFactoryBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,522 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 ITON Solutions.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.iton.jssi.pool.event;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.bitcoinj.core.Base58;
+import org.iton.jssi.pool.PoolConstants;
+import org.iton.jssi.pool.PoolHandler;
+import org.iton.jssi.pool.VerificationHandler;
+import org.iton.jssi.pool.model.NodeTransaction;
+import org.iton.jssi.pool.network.INetworkHandler;
+import org.iton.jssi.pool.network.PoolConnection;
+import org.iton.jssi.pool.network.event.CleanTimeout;
+import org.iton.jssi.pool.network.event.INetworkEvent;
+import org.iton.jssi.pool.network.event.SendOneRequest;
+import org.iton.jssi.pool.proof.ParticipantKeys;
+import org.iton.jssi.pool.state.Active;
+import org.iton.jssi.pool.util.Digests;
+import org.iton.jssi.pool.util.MsgPack;
+import org.iton.jssi.ursa.bls.Generator;
+import org.iton.jssi.ursa.bls.VerKey;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.zeromq.ZContext;
+import org.zeromq.ZMQ;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Built-in request with state proof sent to single node and finished on verified proof of its reply.
+ * BLS check of multi signature is replaced, trie proof or ledger audit path and freshness of signed state are verified.
+ * Proofs are checked on pool worker thread, or on executor of verification handler with result returned as ProofVerified.
+ *
+ * @author ITON Solutions
+ */
+public class SendRequestTest {
+
+    private static final String REQ_ID = "1571234567890123";
+    private static final String DEST = "V4SGRU86Z58d6TV7PBUe6f";
+    private static final String VALUE = "{\"seqNo\":10,\"txnTime\":1571234567,\"identifier\":\"Th7MpTaRZVRYnPiabds81Y\",\"role\":\"101\",\"verkey\":\"~7TYfekw4GUagBnBVCqPjiC\"}";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private Network network;
+    private PoolHandler pool;
+
+    private ZContext context;
+    private ExecutorService executor;
+
+    @BeforeEach
+    public void setUp(){
+        network = new Network();
+        pool = new PoolHandler(network, "test", 1, 10, 20);
+
+        for(int i = 1; i <= 4; i++){
+            pool.nodes.put("Node" + i, new NodeTransaction());
+            pool.verkeys.put("Node" + i, new VerKey());
+        }
+        pool.keys = new SignedKeys(pool.verkeys);
+        pool.state = new Active(new HashMap<>(), pool.verkeys);
+    }
+
+    @AfterEach
+    public void tearDown(){
+        if(pool.verifier != null){
+            pool.verifier.close();
+            executor.shutdownNow();
+            context.close();
+        }
+    }
+
+    @Test
+    public void testFreshProofFinishesRequest() throws Exception {
+        Active active = (Active) pool.state;
+
+        pool.handleEvent(new SendRequest(1, request(), null, new String[0]));
+        assertTrue(active.handlers.containsKey(REQ_ID));
+        assertTrue(network.events.get(0) instanceof SendOneRequest);
+
+        pool.handleEvent(new NodeReply("Node1", reply(VALUE, new Date().getTime() / 1000)));
+        assertTrue(active.handlers.isEmpty());
+
+        INetworkEvent last = network.events.get(network.events.size() - 1);
+        assertTrue(last instanceof CleanTimeout);
+        assertEquals(REQ_ID, ((CleanTimeout) last).reqId);
+        assertNull(((CleanTimeout) last).alias);
+    }
+
+    @Test
+    public void testTxnProofFinishesRequest() throws Exception {
+        Active active = (Active) pool.state;
+
+        pool.handleEvent(new SendRequest(1, txnRequest(3), null, new String[0]));
+        assertTrue(active.handlers.containsKey(REQ_ID));
+
+        pool.handleEvent(new NodeReply("Node1", txnReply(3, 3, 5)));
+        assertTrue(active.handlers.isEmpty());
+    }
+
+    @Test
+    public void testTxnProofOfOtherTxnContinuesRequest() throws Exception {
+        Active active = (Active) pool.state;
+
+        pool.handleEvent(new SendRequest(1, txnRequest(3), null, new String[0]));
+        pool.handleEvent(new NodeReply("Node1", txnReply(3, 4, 5)));
+        assertTrue(active.handlers.containsKey(REQ_ID));
+    }
+
+    @Test
+    public void testStaleProofContinuesRequest() throws Exception {
+        Active active = (Active) pool.state;
+        long stale = new Date().getTime() / 1000 - 2 * PoolConstants.POOL_FRESHNESS_THRESHOLD;
+
+        pool.handleEvent(new SendRequest(1, request(), null, new String[0]));
+        pool.handleEvent(new NodeReply("Node1", reply(VALUE, stale)));
+        assertTrue(active.handlers.containsKey(REQ_ID));
+    }
+
+    @Test
+    public void testWrongValueContinuesRequest() throws Exception {
+        Active active = (Active) pool.state;
+
+        pool.handleEvent(new SendRequest(1, request(), null, new String[0]));
+        pool.handleEvent(new NodeReply("Node1", reply(VALUE.replace("101", "0"), new Date().getTime() / 1000)));
+        assertTrue(active.handlers.containsKey(REQ_ID));
+    }
+
+    @Test
+    public void testUnknownReplyIsDropped() throws Exception {
+        Active active = (Active) pool.state;
+
+        pool.handleEvent(new SendRequest(1, request(), null, new String[0]));
+        int sent = network.events.size();
+
+        pool.handleEvent(new NodeReply("Node1", reply(VALUE, new Date().getTime() / 1000).replace(REQ_ID, "1")));
+        assertTrue(active.handlers.containsKey(REQ_ID));
+        assertEquals(sent, network.events.size());
+    }
+
+    @Test
+    public void testProofVerifiedOffThreadFinishesRequest() throws Exception {
+        Active active = (Active) pool.state;
+        verifyOffThread();
+
+        pool.handleEvent(new SendRequest(1, request(), null, new String[0]));
+        pool.handleEvent(new NodeReply("Node1", reply(VALUE, new Date().getTime() / 1000)));
+        // request waits for result of verification
+        assertTrue(active.handlers.containsKey(REQ_ID));
+
+        List<IPoolEvent> results = await(1);
+        ProofVerified result = (ProofVerified) results.get(0);
+        assertEquals(REQ_ID, result.reqId);
+        assertEquals("Node1", result.alias);
+        assertTrue(result.verified);
+
+        pool.handleEvent(result);
+        assertTrue(active.handlers.isEmpty());
+
+        INetworkEvent last = network.events.get(network.events.size() - 1);
+        assertTrue(last instanceof CleanTimeout);
+        assertNull(((CleanTimeout) last).alias);
+    }
+
+    @Test
+    public void testProofRejectedOffThreadContinuesRequest() throws Exception {
+        Active active = (Active) pool.state;
+        verifyOffThread();
+
+        pool.handleEvent(new SendRequest(1, request(), null, new String[0]));
+        pool.handleEvent(new NodeReply("Node1", reply(VALUE.replace("101", "0"), new Date().getTime() / 1000)));
+
+        ProofVerified result = (ProofVerified) await(1).get(0);
+        assertFalse(result.verified);
+
+        pool.handleEvent(result);
+        assertTrue(active.handlers.containsKey(REQ_ID));
+
+        // request is resent to other nodes, timeout of node replied is cleaned
+        INetworkEvent last = network.events.get(network.events.size() - 1);
+        assertTrue(last instanceof CleanTimeout);
+        assertEquals("Node1", ((CleanTimeout) last).alias);
+    }
+
+    @Test
+    public void testProofVerifiedAfterRequestFinishedIsDropped() throws Exception {
+        Active active = (Active) pool.state;
+        verifyOffThread();
+
+        pool.handleEvent(new SendRequest(1, request(), null, new String[0]));
+        pool.handleEvent(new NodeReply("Node1", reply(VALUE, new Date().getTime() / 1000)));
+        // consensus of two equal replies finishes request before proof of first one is verified
+        pool.handleEvent(new NodeReply("Node2", reply(VALUE, new Date().getTime() / 1000)));
+        assertTrue(active.handlers.isEmpty());
+        int sent = network.events.size();
+
+        ProofVerified result = (ProofVerified) await(1).get(0);
+        assertEquals(REQ_ID, result.reqId);
+
+        pool.handleEvent(result);
+        assertTrue(active.handlers.isEmpty());
+        assertEquals(sent, network.events.size());
+    }
+
+    /**
+     * Check proofs of requests created from now on by verification handler of pool
+     */
+    private void verifyOffThread(){
+        context = new ZContext();
+        executor = Executors.newSingleThreadExecutor();
+        pool.verifier = new VerificationHandler(context, executor, 1);
+    }
+
+    /**
+     * Poll verification handler as pool thread does until count results arrive
+     */
+    private List<IPoolEvent> await(int count){
+        List<IPoolEvent> result = new ArrayList<>();
+        long deadline = new Date().getTime() + 10000;
+
+        while(result.size() < count && new Date().getTime() < deadline){
+            ZMQ.Poller poller = context.createPoller(1);
+            try {
+                poller.register(pool.verifier.getPollItem());
+                poller.poll(100);
+                if(poller.pollin(0)){
+                    result.addAll(pool.verifier.fetchEvents());
+                }
+            } finally {
+                poller.close();
+            }
+        }
+        assertEquals(count, result.size());
+        return result;
+    }
+
+    private static String request(){
+        ObjectNode request = MAPPER.createObjectNode();
+        request.put("reqId", Long.parseLong(REQ_ID));
+        request.put("identifier", "Th7MpTaRZVRYnPiabds81Y");
+        request.putObject("operation").put("type", "105").put("dest", DEST);
+        request.put("protocolVersion", 2);
+        return request.toString();
+    }
+
+    /**
+     * Reply of node with state proof of single leaf trie, leaf holds value stored under hash of dest
+     */
+    private static String reply(String value, long timestamp){
+        byte[] key = Digests.sha256(DEST.getBytes());
+        byte[] path = new byte[key.length + 1];
+        path[0] = 0x20; // leaf with even number of nibbles
+        System.arraycopy(key, 0, path, 1, key.length);
+
+        byte[] leaf = list(item(path), item(list(item(VALUE.getBytes()))));
+        String root = Base58.encode(Digests.sha3(leaf));
+
+        ObjectNode reply = MAPPER.createObjectNode();
+        reply.put("op", "REPLY");
+        ObjectNode result = reply.putObject("result");
+        result.put("type", "105");
+        result.put("identifier", "Th7MpTaRZVRYnPiabds81Y");
+        result.put("reqId", Long.parseLong(REQ_ID));
+        result.put("dest", DEST);
+        result.put("seqNo", 10);
+        result.put("txnTime", 1571234567);
+
+        ObjectNode data = MAPPER.createObjectNode();
+        ObjectNode parsed;
+        try {
+            parsed = (ObjectNode) MAPPER.readTree(value);
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e);
+        }
+        data.put("dest", DEST);
+        data.set("identifier", parsed.get("identifier"));
+        data.set("role", parsed.get("role"));
+        data.set("verkey", parsed.get("verkey"));
+        result.put("data", data.toString());
+
+        ObjectNode state_proof = result.putObject("state_proof");
+        state_proof.put("proof_nodes", Base64.getEncoder().encodeToString(list(leaf)));
+        state_proof.put("root_hash", root);
+
+        multiSignature(state_proof, root, Base58.encode(new byte[32]), timestamp);
+        return reply.toString();
+    }
+
+    private static String txnRequest(int seqNo){
+        ObjectNode request = MAPPER.createObjectNode();
+        request.put("reqId", Long.parseLong(REQ_ID));
+        request.put("identifier", "Th7MpTaRZVRYnPiabds81Y");
+        request.putObject("operation").put("type", "3").put("data", seqNo).put("ledgerId", 1);
+        request.put("protocolVersion", 2);
+        return request.toString();
+    }
+
+    /**
+     * Reply of node with transaction of ledger and its audit path
+     *
+     * @param seqNo requested transaction
+     * @param proved transaction the audit path is computed for
+     * @param size ledger size
+     */
+    private static String txnReply(int seqNo, int proved, int size) throws IOException {
+        ObjectNode[] txns = new ObjectNode[size];
+        byte[][] leaves = new byte[size][];
+        for(int i = 0; i < size; i++){
+            txns[i] = txn(i + 1);
+            leaves[i] = MsgPack.encode(txns[i]);
+        }
+
+        ObjectNode reply = MAPPER.createObjectNode();
+        reply.put("op", "REPLY");
+        ObjectNode result = reply.putObject("result");
+        result.put("type", "3");
+        result.put("identifier", "Th7MpTaRZVRYnPiabds81Y");
+        result.put("reqId", Long.parseLong(REQ_ID));
+        result.put("seqNo", seqNo);
+
+        String root = Base58.encode(hash(leaves, 0, size));
+        ObjectNode data = txns[seqNo - 1].deepCopy();
+        ArrayNode path = data.putArray("auditPath");
+        for(byte[] hash : path(leaves, proved - 1, 0, size)){
+            path.add(Base58.encode(hash));
+        }
+        data.put("ledgerSize", size);
+        data.put("rootHash", root);
+        result.set("data", data);
+
+        ObjectNode state_proof = result.putObject("state_proof");
+        multiSignature(state_proof, Base58.encode(new byte[32]), root, new Date().getTime() / 1000);
+        return reply.toString();
+    }
+
+    private static ObjectNode txn(int seqNo){
+        ObjectNode txn = MAPPER.createObjectNode();
+        ObjectNode inner = txn.putObject("txn");
+        inner.put("type", "1");
+        inner.put("protocolVersion", 2);
+        inner.putObject("data").put("dest", "Dest" + seqNo).put("verkey", "~Verkey" + seqNo);
+        inner.putObject("metadata").put("from", "Th7MpTaRZVRYnPiabds81Y").put("reqId", seqNo);
+        txn.putObject("txnMetadata").put("seqNo", seqNo).put("txnTime", 1571234567 + seqNo);
+        txn.putObject("reqSignature").put("type", "ED25519").putArray("values")
+                .addObject().put("from", "Th7MpTaRZVRYnPiabds81Y").put("value", "signature" + seqNo);
+        txn.put("ver", "1");
+        return txn;
+    }
+
+    // Merkle tree hash of leaves [from, to) as in RFC 6962
+    private static byte[] hash(byte[][] leaves, int from, int to){
+        if(to - from == 1){
+            return Digests.sha256(concat(new byte[]{0x00}, leaves[from]));
+        }
+        int split = split(to - from);
+        return Digests.sha256(concat(new byte[]{0x01}, concat(hash(leaves, from, from + split), hash(leaves, from + split, to))));
+    }
+
+    private static List<byte[]> path(byte[][] leaves, int index, int from, int to){
+        List<byte[]> path = new ArrayList<>();
+        if(to - from == 1){
+            return path;
+        }
+        int split = split(to - from);
+        if(index < from + split){
+            path.addAll(path(leaves, index, from, from + split));
+            path.add(hash(leaves, from + split, to));
+        } else {
+            path.addAll(path(leaves, index, from + split, to));
+            path.add(hash(leaves, from, from + split));
+        }
+        return path;
+    }
+
+    // largest power of two smaller than size
+    private static int split(int size){
+        int split = 1;
+        while(split * 2 < size){
+            split *= 2;
+        }
+        return split;
+    }
+
+    private static void multiSignature(ObjectNode state_proof, String state_root, String txn_root, long timestamp){
+        ObjectNode multi_signature = state_proof.putObject("multi_signature");
+        multi_signature.put("signature", Base58.encode(new byte[]{1, 2, 3}));
+        ArrayNode participants = multi_signature.putArray("participants");
+        participants.add("Node1").add("Node2").add("Node3");
+        ObjectNode signed = multi_signature.putObject("value");
+        signed.put("ledger_id", 1);
+        signed.put("pool_state_root_hash", Base58.encode(new byte[32]));
+        signed.put("state_root_hash", state_root);
+        signed.put("timestamp", timestamp);
+        signed.put("txn_root_hash", txn_root);
+    }
+
+    private static byte[] item(byte[] bytes){
+        if(bytes.length == 1 && (bytes[0] & 0xFF) < 0x80){
+            return bytes;
+        }
+        return concat(header(0x80, bytes.length), bytes);
+    }
+
+    private static byte[] list(byte[]... items){
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        for(byte[] item : items){
+            payload.write(item, 0, item.length);
+        }
+        return concat(header(0xC0, payload.size()), payload.toByteArray());
+    }
+
+    private static byte[] header(int offset, int length){
+        if(length < 56){
+            return new byte[]{(byte) (offset + length)};
+        }
+        int size = length < 0x100 ? 1 : 2;
+        byte[] header = new byte[size + 1];
+        header[0] = (byte) (offset + 55 + size);
+        for(int i = size; i > 0; i--){
+            header[i] = (byte) length;
+            length >>= 8;
+        }
+        return header;
+    }
+
+    private static byte[] concat(byte[] first, byte[] second){
+        byte[] result = new byte[first.length + second.length];
+        System.arraycopy(first, 0, result, 0, first.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+
+    /**
+     * Multi signature is accepted as valid, its check needs BLS keys of real pool
+     */
+    private static class SignedKeys extends ParticipantKeys {
+
+        SignedKeys(Map<String, VerKey> nodes){
+            super(nodes);
+        }
+
+        @Override
+        public boolean verify(String signature, byte[] value, VerKey[] participants, Generator generator){
+            return participants.length == 3;
+        }
+    }
+
+    private static class Network implements INetworkHandler {
+
+        final List<INetworkEvent> events = new ArrayList<>();
+
+        @Override
+        public List<IPoolEvent> fetchEvents(ZMQ.PollItem[] poll_items) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public List<ZMQ.PollItem> getPollItems() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public PoolConnection.Timeout getTimeout() {
+            return null;
+        }
+
+        @Override
+        public long getNextPing() {
+            return 0;
+        }
+
+        @Override
+        public long getNextReap() {
+            return 0;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public void handleEvent(INetworkEvent event) {
+            events.add(event);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ *
+ *  The MIT License
+ *
+ *  Copyright 2019 ITON Solutions.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+
+package org.iton.jssi.pool.proof;
+
+import org.iton.jssi.ledger.merkle.Leaf;
+import org.iton.jssi.ledger.merkle.MerkleTree;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Audit paths of Merkle tree test vectors of RFC 6962 (Certificate Transparency)
+ *
+ * @author ITON Solutions
+ */
+public class AuditPathTest {
+
+    private static final byte[][] LEAVES = {
+            hex(""),
+            hex("00"),
+            hex("10"),
+            hex("2021"),
+            hex("3031"),
+            hex("40414243"),
+            hex("5051525354555657"),
+            hex("606162636465666768696a6b6c6d6e6f")
+    };
+
+    private static final byte[] ROOT_5 = hex("4e3bbb1f7b478dcfe71fb631631519a3bca12c9aefca1612bfce4c13a86264d4");
+    private static final byte[] ROOT_8 = hex("5dc9da79a70659a9ad559cb701ded9a2ab9d823aad2f4960cfe370eff4604328");
+
+    @Test
+    public void testFirstLeaf(){
+        List<byte[]> path = path(
+                "96a296d224f285c67bee93c30f8a309157f0daa35dc5b87e410b78630a09cfc7",
+                "5f083f0a1a33ca076a95279832580db3e0ef4584bdff1f54c8a360f50de3031e",
+                "6b47aaf29ee3c2af9af889bc1fb9254dabd31177f16232dd6aab035ca39bf6e4");
+        assertTrue(AuditPath.verify(LEAVES[0], 0, 8, path, ROOT_8));
+    }
+
+    @Test
+    public void testInnerLeaf(){
+        List<byte[]> path = path(
+                "bc1a0643b12e4d2d7c77918f44e0f4f79a838b6cf9ec5b5c283e1f4d88599e6b",
+                "ca854ea128ed050b41b35ffc1b87b8eb2bde461e9e3b5596ece6b9d5975a0ae0",
+                "d37ee418976dd95753c1c73862b9398fa2a2cf9b4ff0fdfe8b30cd95209614b7");
+        assertTrue(AuditPath.verify(LEAVES[5], 5, 8, path, ROOT_8));
+    }
+
+    @Test
+    public void testLastLeaf(){
+        List<byte[]> path = path(
+                "b08693ec2e721597130641e8211e7eedccb4c26413963eee6c1e2ed16ffb1a5f",
+                "0ebc5d3437fbe2db158b9f126a1d118e308181031d0a949f8dededebc558ef6a",
+                "d37ee418976dd95753c1c73862b9398fa2a2cf9b4ff0fdfe8b30cd95209614b7");
+        assertTrue(AuditPath.verify(LEAVES[7], 7, 8, path, ROOT_8));
+    }
+
+    @Test
+    public void testIncompleteTree(){
+        // last leaf of odd sized tree has no sibling on the lower levels
+        assertTrue(AuditPath.verify(LEAVES[4], 4, 5, path("d37ee418976dd95753c1c73862b9398fa2a2cf9b4ff0fdfe8b30cd95209614b7"), ROOT_5));
+
+        List<byte[]> path = path(
+                "07506a85fd9dd2f120eb694f86011e5bb4662e5c415a62917033d4a9624487e7",
+                "fac54203e7cc696cf0dfcb42c92a1d9dbaf70ad9e621f4bd8d98662f00e3c125",
+                "bc1a0643b12e4d2d7c77918f44e0f4f79a838b6cf9ec5b5c283e1f4d88599e6b");
+        assertTrue(AuditPath.verify(LEAVES[2], 2, 5, path, ROOT_5));
+    }
+
+    @Test
+    public void testSingleLeaf(){
+        byte[] root = hex("6e340b9cffb37a989ca544e6bb780a2c78901d3fb33738768511a30617afa01d");
+        assertTrue(AuditPath.verify(LEAVES[0], 0, 1, Collections.<byte[]>emptyList(), root));
+    }
+
+    @Test
+    public void testRejected(){
+        List<byte[]> path = path(
+                "bc1a0643b12e4d2d7c77918f44e0f4f79a838b6cf9ec5b5c283e1f4d88599e6b",
+                "ca854ea128ed050b41b35ffc1b87b8eb2bde461e9e3b5596ece6b9d5975a0ae0",
+                "d37ee418976dd95753c1c73862b9398fa2a2cf9b4ff0fdfe8b30cd95209614b7");
+
+        // other leaf, index, size or root
+        assertFalse(AuditPath.verify(LEAVES[4], 5, 8, path, ROOT_8));
+        assertFalse(AuditPath.verify(LEAVES[5], 4, 8, path, ROOT_8));
+        assertFalse(AuditPath.verify(LEAVES[5], 5, 6, path, ROOT_8));
+        assertFalse(AuditPath.verify(LEAVES[5], 5, 8, path, ROOT_5));
+        // index out of tree
+        assertFalse(AuditPath.verify(LEAVES[5], 8, 8, path, ROOT_8));
+
+        // path too short or too long
+        assertFalse(AuditPath.verify(LEAVES[5], 5, 8, path.subList(0, 2), ROOT_8));
+        List<byte[]> longer = new ArrayList<>(path);
+        longer.add(ROOT_8);
+        assertFalse(AuditPath.verify(LEAVES[5], 5, 8, longer, ROOT_8));
+    }
+
+    @Test
+    public void testPathsOfLedgerTrees() throws Exception {
+        List<Leaf> leaves = new ArrayList<>();
+        for(int size = 1; size <= 17; size++){
+            leaves.add(new Leaf(new byte[]{(byte) size, 0x0A}));
+            byte[] root = new MerkleTree(leaves).build().getHash();
+
+            for(int index = 0; index < size; index++){
+                List<byte[]> path = new ArrayList<>();
+                path(leaves, index, 0, size, path);
+                assertTrue(AuditPath.verify(leaves.get(index).data, index, size, path, root), String.format("leaf %d of %d", index, size));
+                if(size > 1){
+                    assertFalse(AuditPath.verify(leaves.get(index).data, (index + 1) % size, size, path, root));
+                }
+            }
+        }
+    }
+
+    /**
+     * Audit path of RFC 6962 built from roots of ledger trees over sub ranges, siblings are added from leaf up
+     */
+    private static void path(List<Leaf> leaves, int index, int from, int to, List<byte[]> path) throws Exception {
+        if(to - from == 1){
+            return;
+        }
+        int split = 1;
+        while(2 * split < to - from){
+            split *= 2;
+        }
+        if(index < from + split){
+            path(leaves, index, from, from + split, path);
+            path.add(new MerkleTree(leaves.subList(from + split, to)).build().getHash());
+        } else {
+            path(leaves, index, from + split, to, path);
+            path.add(new MerkleTree(leaves.subList(from, from + split)).build().getHash());
+        }
+    }
+
+    private static List<byte[]> path(String... hashes){
+        List<byte[]> path = new ArrayList<>();
+        for(String hash : hashes){
+            path.add(hex(hash));
+        }
+        return path;
+    }
+
+    private static byte[] hex(String hex){
+        byte[] bytes = new byte[hex.length() / 2];
+        for(int i = 0; i < bytes.length; i++){
+            bytes[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ *
+ *  The MIT License
+ *
+ *  Copyright 2019 ITON Solutions.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+
+package org.iton.jssi.pool.proof;
+
+import org.iton.jssi.ursa.rlp.DecodeException;
+import org.iton.jssi.ursa.util.Bytes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Proof nodes indexed by hex encoded hash in HashMap (as before NodeIndex) against NodeIndex.
+ * Child hashes are looked up from one buffer, as they are held inside encoding of full node.
+ *
+ * @author ITON Solutions
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NodeIndexBenchmark {
+
+    private static final int HASH_SIZE = 32;
+
+    @Param({"16", "64"})
+    public int count;
+
+    private Node[] nodes;
+    private byte[] hashes;
+    private Map<String, Node> map;
+    private NodeIndex index;
+
+    @Setup
+    public void setup() throws DecodeException {
+        Random random = new Random(42);
+        RLPNodeAdapter adapter = new RLPNodeAdapter();
+
+        nodes = new Node[count];
+        hashes = new byte[count * HASH_SIZE];
+        map = new HashMap<>();
+        index = new NodeIndex(count);
+
+        for(int i = 0; i < count; i++){
+            byte[] value = new byte[40];
+            random.nextBytes(value);
+            nodes[i] = adapter.decode(leaf(i, value), 0);
+            System.arraycopy(nodes[i].hash(), 0, hashes, i * HASH_SIZE, HASH_SIZE);
+            map.put(Bytes.toHex(nodes[i].hash()), nodes[i]);
+            index.put(nodes[i]);
+        }
+    }
+
+    // RLP list of hex prefix leaf path [0x20, i] and value shorter than 53 bytes
+    private static byte[] leaf(int i, byte[] value){
+        byte[] encoded = new byte[1 + 3 + 1 + value.length];
+        encoded[0] = (byte) (0xC0 + encoded.length - 1);
+        encoded[1] = (byte) 0x82;
+        encoded[2] = 0x20;
+        encoded[3] = (byte) i;
+        encoded[4] = (byte) (0x80 + value.length);
+        System.arraycopy(value, 0, encoded, 5, value.length);
+        return encoded;
+    }
+
+    @Benchmark
+    public void mapBuildAndLookup(Blackhole hole) throws DecodeException {
+        Map<String, Node> trie = new HashMap<>();
+        for(Node node : nodes){
+            trie.put(Bytes.toHex(node.hash()), node);
+        }
+        lookup(trie, hole);
+    }
+
+    @Benchmark
+    public void indexBuildAndLookup(Blackhole hole) throws DecodeException {
+        NodeIndex trie = new NodeIndex(nodes.length);
+        for(Node node : nodes){
+            trie.put(node);
+        }
+        lookup(trie, hole);
+    }
+
+    @Benchmark
+    public void mapLookup(Blackhole hole){
+        lookup(map, hole);
+    }
+
+    @Benchmark
+    public void indexLookup(Blackhole hole) throws DecodeException {
+        lookup(index, hole);
+    }
+
+    private void lookup(Map<String, Node> trie, Blackhole hole){
+        byte[] hash = new byte[HASH_SIZE];
+        for(int i = 0; i < count; i++){
+            System.arraycopy(hashes, i * HASH_SIZE, hash, 0, HASH_SIZE);
+            hole.consume(trie.get(Bytes.toHex(hash)));
+        }
+    }
+
+    private void lookup(NodeIndex trie, Blackhole hole) throws DecodeException {
+        for(int i = 0; i < count; i++){
+            hole.consume(trie.get(hashes, i * HASH_SIZE));
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(NodeIndexBenchmark.class.getSimpleName()).build()).run();
+    }
+}
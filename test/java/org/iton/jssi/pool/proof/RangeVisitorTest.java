@@ -0,0 +1,92 @@
+/*
+ *
+ *  The MIT License
+ *
+ *  Copyright 2019 ITON Solutions.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+
+package org.iton.jssi.pool.proof;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Numerical key suffix checks of revocation range proofs
+ *
+ * @author ITON Solutions
+ */
+public class RangeVisitorTest {
+
+    private static final byte[] PREFIX = "5:".getBytes();
+
+    @Test
+    public void testSuffixInRange(){
+        assertTrue(verify("7", 1L, 10L));
+        assertTrue(verify("0007", 1L, 10L));
+        assertFalse(verify("10", 1L, 10L));
+    }
+
+    @Test
+    public void testLongSuffixInOpenRange(){
+        assertTrue(verify("1234567890123456789012345", 1L, null));
+    }
+
+    @Test
+    public void testLongSuffixOutOfRange(){
+        assertFalse(verify("1234567890123456789012345", 1L, Long.MAX_VALUE));
+        assertFalse(verify("9223372036854775807", 1L, Long.MAX_VALUE));
+        assertTrue(verify("9223372036854775806", 1L, Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testLongSuffixWithWrongValue(){
+        String key = "5:1234567890123456789012345";
+        Map<String, String> expected = new HashMap<>();
+        expected.put(key, "other");
+
+        NodeHelper.RangeVisitor visitor = new NodeHelper.RangeVisitor(PREFIX, 1L, null, expected);
+        visitor.visit(prefix(key), "value".getBytes());
+        assertFalse(visitor.isVerified());
+    }
+
+    private static boolean verify(String suffix, Long from, Long to){
+        String key = "5:" + suffix;
+        Map<String, String> expected = new HashMap<>();
+        expected.put(key, "value");
+
+        NodeHelper.RangeVisitor visitor = new NodeHelper.RangeVisitor(PREFIX, from, to, expected);
+        visitor.visit(prefix(key), "value".getBytes());
+        return visitor.isVerified();
+    }
+
+    private static Node.Prefix prefix(String key){
+        byte[] bytes = key.getBytes();
+        Node.Prefix prefix = new Node.Prefix(2 * bytes.length);
+        for(int i = 0; i < 2 * bytes.length; i++){
+            prefix.push(Node.nibble(bytes, i));
+        }
+        return prefix;
+    }
+}